@@ -1,42 +1,99 @@
 package com.example.diary.controller;
 
 import com.example.diary.model.CalendarResponse;
+import com.example.diary.model.DiaryEntry;
+import com.example.diary.model.DiarySummary;
 import com.example.diary.model.DiarySession;
 import com.example.diary.service.CalendarService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/calendar")
 public class CalendarController {
     
+    /**
+     * 范围查询最多跨越的天数
+     */
+    private static final long MAX_RANGE_DAYS = 366;
+    
     @Autowired
     private CalendarService calendarService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
-     * 获取所有有日记的日期列表
+     * 获取有日记的日期列表，可按月份（yyyy-MM）过滤
      */
     @GetMapping("/dates")
-    public ResponseEntity<List<String>> getDiaryDates() {
-        List<String> diaryDates = calendarService.getDiaryDates();
+    public ResponseEntity<List<String>> getDiaryDates(@RequestParam(required = false) YearMonth month) {
+        List<String> diaryDates = month != null
+            ? calendarService.getDiaryDates(month)
+            : calendarService.getDiaryDates();
         return ResponseEntity.ok(diaryDates);
     }
     
     /**
-     * 根据日期获取日记内容
+     * 根据日期获取日记摘要（条目通过 /entries/{date} 分页获取）
      */
     @GetMapping("/diary/{date}")
     public ResponseEntity<CalendarResponse> getDiaryByDate(@PathVariable String date) {
-        DiarySession diary = calendarService.getDiaryByDate(date);
+        DiarySummary diary = calendarService.getDiarySummary(date);
         List<String> diaryDates = calendarService.getDiaryDates();
         
         CalendarResponse response = new CalendarResponse(diaryDates, diary);
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 分页获取日记条目
+     */
+    @GetMapping("/entries/{date}")
+    public ResponseEntity<List<DiaryEntry>> getDiaryEntries(@PathVariable String date,
+                                                            @RequestParam(defaultValue = "0") int offset,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(calendarService.getDiaryEntries(date, offset, limit));
+    }
+    
+    /**
+     * 获取日期范围内的完整日记（多日视图），边解析边输出JSON数组
+     */
+    @GetMapping("/range")
+    public ResponseEntity<StreamingResponseBody> getDiaryRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<DiarySession> diaries = calendarService.streamDiaries(from, to);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Iterator<DiarySession> iterator = diaries.iterator();
+                while (iterator.hasNext()) {
+                    objectMapper.writeValue(generator, iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+    
     /**
      * 检查指定日期是否有日记
      */
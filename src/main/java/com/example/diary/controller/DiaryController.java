@@ -8,6 +8,7 @@ import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
 import com.example.diary.service.DiarySessionService;
+import com.example.diary.service.GenerationRejectedException;
 
 /**
  * 日记助手命令行控制器
@@ -34,7 +35,7 @@ public class DiaryController {
      */
     @ShellMethod(key = "开始日记", value = "开启当天的日记记录会话")
     public String startDiary() {
-        return diaryService.processInput("开始日记");
+        return process("开始日记");
     }
     
     /**
@@ -43,7 +44,7 @@ public class DiaryController {
      */
     @ShellMethod(key = "结束日记", value = "结束当天的日记记录并生成总结")
     public String endDiary() {
-        return diaryService.processInput("让我们结束今天的日记吧");
+        return process("让我们结束今天的日记吧");
     }
     
     /**
@@ -53,7 +54,7 @@ public class DiaryController {
      */
     @ShellMethod(key = "记录", value = "记录一条日记内容")
     public String record(@ShellOption("内容") String content) {
-        return diaryService.processInput(content);
+        return process(content);
     }
     
     /**
@@ -63,7 +64,21 @@ public class DiaryController {
      */
     @ShellMethod(key = "", value = "处理直接输入的内容")
     public String defaultCommand(String content) {
-        return diaryService.processInput(content);
+        return process(content);
+    }
+    
+    /**
+     * 处理输入，模型繁忙或正在结束日记时把原因作为回复返回，而不是抛出到命令行
+     * @param input 用户输入
+     * @return 响应消息
+     */
+    private String process(String input) {
+        try {
+            return diaryService.processInput(input);
+        } catch (GenerationRejectedException | IllegalStateException e) {
+            logger.warn("输入未被处理：{}", e.getMessage());
+            return e.getMessage();
+        }
     }
     
     /**
@@ -0,0 +1,124 @@
+package com.example.diary.controller;
+
+import com.example.diary.service.DiaryJob;
+import com.example.diary.service.DiaryJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 异步任务控制器
+ * 查询结束日记任务的阶段和结果，或以SSE订阅其进度
+ */
+@RestController
+@RequestMapping("/jobs")
+public class DiaryJobController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiaryJobController.class);
+    
+    /**
+     * SSE订阅的最长时间（毫秒），超时后浏览器会自动重连
+     */
+    @Value("${diary.stream.timeout-ms:600000}")
+    private long streamTimeoutMs;
+    
+    @Autowired
+    private DiaryJobService jobService;
+    
+    /**
+     * 获取任务状态：阶段、耗时、已生成字符数，结束后附带与 /end 相同的结果
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String id) {
+        DiaryJob job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toMap(false));
+    }
+    
+    /**
+     * 订阅任务进度
+     * 事件：stage（任务状态，订阅时的第一条含已生成的全部文本，重连后据此恢复草稿）、
+     * token（新的输出片段及其在全文中的位置）、done（任务结束，data为 /end 的结果）
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@PathVariable String id) {
+        DiaryJob job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        JobEventSender sender = new JobEventSender(job, emitter);
+        emitter.onCompletion(() -> job.removeListener(sender));
+        emitter.onTimeout(() -> job.removeListener(sender));
+        
+        // 先注册再发送快照：快照之后的片段不会丢失；与快照重复的片段由客户端按位置跳过
+        if (job.addListener(sender)) {
+            sender.send("stage", job.toMap(true));
+        } else {
+            sender.onStage(job);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * 把任务事件转发给一个SSE连接，连接断开后自动取消订阅
+     */
+    private static final class JobEventSender implements DiaryJob.Listener {
+        
+        private final DiaryJob job;
+        private final SseEmitter emitter;
+        private boolean closed;
+        
+        JobEventSender(DiaryJob job, SseEmitter emitter) {
+            this.job = job;
+            this.emitter = emitter;
+        }
+        
+        @Override
+        public void onStage(DiaryJob job) {
+            if (job.getStage().isFinished()) {
+                send("done", job.getResult());
+                synchronized (this) {
+                    if (!closed) {
+                        closed = true;
+                        emitter.complete();
+                    }
+                }
+            } else {
+                send("stage", job.toMap(false));
+            }
+        }
+        
+        @Override
+        public void onToken(String text, int offset) {
+            send("token", Map.of("text", text, "offset", offset));
+        }
+        
+        synchronized void send(String event, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                job.removeListener(this);
+                logger.debug("任务进度订阅已断开：{}", job.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.diary.controller;
+
+import com.example.diary.fake.FakeOllamaLauncher;
+import com.example.diary.persistence.FileDiaryRepository;
+import com.example.diary.service.DiaryJobService;
+import com.example.diary.service.OllamaService;
+import com.example.diary.service.PromptBudget;
+import com.example.diary.service.RollingSummarizer;
+import com.example.diary.service.SectionGenerator;
+import com.example.diary.service.StructuredDiaryGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标控制器
+ * 汇总各组件的统计数据，供排查性能问题使用
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+    
+    @Autowired
+    private FileDiaryRepository diaryRepository;
+    
+    @Autowired
+    private OllamaService ollamaService;
+    
+    @Autowired
+    private RollingSummarizer rollingSummarizer;
+    
+    @Autowired
+    private PromptBudget promptBudget;
+    
+    @Autowired
+    private SectionGenerator sectionGenerator;
+    
+    @Autowired
+    private StructuredDiaryGenerator structuredGenerator;
+    
+    @Autowired
+    private DiaryJobService jobService;
+    
+    /**
+     * 只在 fake-ollama 配置下存在
+     */
+    @Autowired(required = false)
+    private FakeOllamaLauncher fakeOllama;
+    
+    /**
+     * 获取所有运行指标
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sessionCache", diaryRepository.getCacheStats());
+        metrics.put("archive", diaryRepository.getArchiveStats());
+        metrics.put("writes", diaryRepository.getWriteStats());
+        metrics.put("writeBehind", diaryRepository.getWriteBehindStats());
+        metrics.put("search", diaryRepository.getSearchStats());
+        metrics.put("ollamaHttp", ollamaService.getHttpStats());
+        metrics.put("generationCache", ollamaService.getCacheStats());
+        metrics.put("scheduler", ollamaService.getSchedulerStats());
+        metrics.put("health", ollamaService.getHealthStats());
+        metrics.put("timings", ollamaService.getTimingStats());
+        metrics.put("rollingSummary", rollingSummarizer.getStats());
+        metrics.put("promptBudget", promptBudget.getStats());
+        metrics.put("sections", sectionGenerator.getStats());
+        metrics.put("structuredOutput", structuredGenerator.getStats());
+        metrics.put("jobs", jobService.getStats());
+        if (fakeOllama != null) {
+            metrics.put("fakeOllama", fakeOllama.getStats());
+        }
+        return ResponseEntity.ok(metrics);
+    }
+}
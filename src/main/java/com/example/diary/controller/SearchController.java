@@ -0,0 +1,40 @@
+package com.example.diary.controller;
+
+import com.example.diary.model.SearchHit;
+import com.example.diary.service.DiarySearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 日记检索控制器
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+    
+    /**
+     * 单次检索最多返回的结果数
+     */
+    private static final int MAX_LIMIT = 100;
+    
+    @Autowired
+    private DiarySearchService searchService;
+    
+    /**
+     * 全文检索日记条目、完整版日记、总结和洞察，按相关度排序
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(@RequestParam("q") String query,
+                                                  @RequestParam(defaultValue = "10") int limit) {
+        if (query.isBlank() || limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(searchService.search(query, Math.min(limit, MAX_LIMIT)));
+    }
+}
@@ -1,17 +1,31 @@
 package com.example.diary.controller;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.example.diary.service.DiaryJob;
+import com.example.diary.service.DiaryJobService;
 import com.example.diary.service.DiarySessionService;
+import com.example.diary.service.GenerationRejectedException;
+import com.example.diary.service.OllamaUnavailableException;
 
 /**
  * Web日记助手控制器
@@ -20,11 +34,25 @@ import com.example.diary.service.DiarySessionService;
 @Controller
 public class WebDiaryController {
     
+    private static final Logger logger = LoggerFactory.getLogger(WebDiaryController.class);
+    
+    /**
+     * 流式结束日记的最长等待时间（毫秒）
+     */
+    @Value("${diary.stream.timeout-ms:600000}")
+    private long streamTimeoutMs;
+    
     private final DiarySessionService diaryService;
+    private final DiaryJobService jobService;
+    private final AsyncTaskExecutor taskExecutor;
     
     @Autowired
-    public WebDiaryController(DiarySessionService diaryService) {
+    public WebDiaryController(DiarySessionService diaryService,
+                              DiaryJobService jobService,
+                              @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
         this.diaryService = diaryService;
+        this.jobService = jobService;
+        this.taskExecutor = taskExecutor;
     }
     
     /**
@@ -86,23 +114,75 @@ public class WebDiaryController {
     
     /**
      * 结束日记并生成总结
+     * async=true 时立即返回202和任务编号，通过 /jobs/{id} 轮询或 /jobs/{id}/events 订阅结果
      */
     @PostMapping("/end")
     @ResponseBody
-    public Map<String, Object> endDiary() {
+    public ResponseEntity<Map<String, Object>> endDiary(@RequestParam(defaultValue = "false") boolean async) {
         Map<String, Object> response = new HashMap<>();
         
+        if (async) {
+            DiaryJob job = jobService.submitEndJob();
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("stage", job.getStage().name());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        }
+        
         try {
             String result = diaryService.processInput("让我们结束今天的日记吧");
             response.put("success", true);
             response.put("message", result);
             response.put("sessionStatus", diaryService.getSessionStatus());
+        } catch (GenerationRejectedException e) {
+            // 模型繁忙返回429，熔断中返回503，会话仍处于记录中
+            response.put("success", false);
+            response.put("rejected", true);
+            response.put("message", e.getMessage());
+            response.put("sessionStatus", diaryService.getSessionStatus());
+            HttpStatus status = e instanceof OllamaUnavailableException
+                ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS;
+            return ResponseEntity.status(status).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "结束日记失败：" + e.getMessage());
         }
         
-        return response;
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 结束日记并以SSE流式推送生成过程
+     * 事件：token（模型输出片段，data为{"text": ...}）、done（与 /end 相同的结果）
+     * 浏览器断开后生成和保存照常完成
+     */
+    @PostMapping(value = "/end/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter endDiaryStream() {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        
+        taskExecutor.execute(() -> {
+            StreamSender sender = new StreamSender(emitter);
+            Map<String, Object> response = new HashMap<>();
+            try {
+                String result = diaryService.endDiarySessionStreaming(
+                    token -> sender.send("token", Map.of("text", token)));
+                response.put("success", true);
+                response.put("message", result);
+                response.put("sessionStatus", diaryService.getSessionStatus());
+            } catch (GenerationRejectedException e) {
+                response.put("success", false);
+                response.put("rejected", true);
+                response.put("message", e.getMessage());
+                response.put("sessionStatus", diaryService.getSessionStatus());
+            } catch (Exception e) {
+                response.put("success", false);
+                response.put("message", "结束日记失败：" + e.getMessage());
+            }
+            sender.send("done", response);
+            emitter.complete();
+        });
+        
+        return emitter;
     }
     
     /**
@@ -135,4 +215,29 @@ public class WebDiaryController {
     public String calendar() {
         return "calendar";
     }
-}
\ No newline at end of file
+    
+    /**
+     * SSE发送器：客户端断开后不再发送，但不中断生成
+     */
+    private static final class StreamSender {
+        
+        private final SseEmitter emitter;
+        private boolean closed;
+        
+        StreamSender(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+        
+        void send(String event, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                logger.info("流式连接已断开，继续在后台完成日记生成");
+            }
+        }
+    }
+}
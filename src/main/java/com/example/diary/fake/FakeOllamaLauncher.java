@@ -0,0 +1,87 @@
+package com.example.diary.fake;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 以 fake-ollama 配置启动时在应用内运行模拟的Ollama服务
+ * application-fake-ollama.yml 把 ollama.url 指向该服务，可在没有模型的环境下做压测和性能对比
+ */
+@Component
+@Profile("fake-ollama")
+public class FakeOllamaLauncher {
+
+    @Value("${fake-ollama.port:11435}")
+    private int port;
+
+    @Value("${fake-ollama.model:${ollama.model:qwen2.5:7b}}")
+    private String model;
+
+    /**
+     * 首token延迟（毫秒）
+     */
+    @Value("${fake-ollama.latency-ms:200}")
+    private long latencyMs;
+
+    /**
+     * 生成速度（每秒token数）
+     */
+    @Value("${fake-ollama.tokens-per-second:30}")
+    private double tokensPerSecond;
+
+    /**
+     * 模型首次加载耗时（毫秒）
+     */
+    @Value("${fake-ollama.load-ms:0}")
+    private long loadMs;
+
+    /**
+     * 生成请求随机失败的比例
+     */
+    @Value("${fake-ollama.failure-rate:0}")
+    private double failureRate;
+
+    @Value("${fake-ollama.failure-status:500}")
+    private int failureStatus;
+
+    private FakeOllamaServer server;
+
+    @PostConstruct
+    public void start() {
+        server = new FakeOllamaServer(port);
+        server.setModel(model);
+        server.setLatencyMs(latencyMs);
+        server.setTokensPerSecond(tokensPerSecond);
+        server.setLoadMs(loadMs);
+        server.setFailureRate(failureRate);
+        server.setFailureStatus(failureStatus);
+        server.start();
+    }
+
+    /**
+     * 获取模拟服务，用于在运行时调整延迟或注入失败
+     * @return 模拟服务
+     */
+    public FakeOllamaServer getServer() {
+        return server;
+    }
+
+    /**
+     * 获取模拟服务的统计
+     * @return 各接口请求数、注入的失败数等
+     */
+    public Map<String, Object> getStats() {
+        return server.getStats();
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.stop();
+    }
+}
@@ -0,0 +1,537 @@
+package com.example.diary.fake;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.diary.service.DiarySection;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 模拟的Ollama服务（基于JDK HttpServer，不依赖Spring）
+ * 实现 /api/generate（流式与非流式）、/api/chat、/api/tags、/api/embeddings，
+ * 可配置首token延迟、生成速度、冷启动耗时和失败注入，输出固定的分部分格式内容，
+ * 用于在没有模型的环境下测量各项性能特性。
+ * 对话请求的第一条system消息与该模型上一次评估的相同时视为命中前缀缓存，
+ * prompt_eval_count 和提示词评估耗时只计入其余部分（与Ollama复用KV缓存的效果一致）。
+ *
+ * 在单元测试中使用：
+ * <pre>
+ * FakeOllamaServer server = new FakeOllamaServer(0);
+ * server.start();
+ * // 把 ollama.url 设置为 server.getUrl()
+ * server.stop();
+ * </pre>
+ */
+public class FakeOllamaServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeOllamaServer.class);
+
+    /**
+     * 非中日韩字符平均每个token对应的字符数（与PromptBudget的估算一致）
+     */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    /**
+     * 向量维度
+     */
+    private static final int EMBEDDING_DIMENSIONS = 64;
+
+    private static final Map<DiarySection, String> SECTION_CONTENT = Map.of(
+        DiarySection.DIARY, "今天按计划推进了手头的工作，中午散步时想到了一个新点子，晚上整理了一下思路。",
+        DiarySection.SUMMARY, "1. 工作按计划推进，状态平稳\n2. 散步时想到了一个新点子\n3. 希望新点子能尽快落地\n"
+            + "4. 感谢同事帮忙解决了问题\n5. 明天整理新点子的方案",
+        DiarySection.INSIGHTS, "你在节奏稳定时更容易产生新想法，可以给自己多留一些散步和放空的时间。");
+
+    private static final String SUMMARY_TEXT = "今天主要在推进工作，期间产生了一个新点子，整体状态平稳。";
+
+    private final int requestedPort;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private volatile String model = "qwen2.5:7b";
+    private volatile long latencyMs = 50;
+    private volatile double tokensPerSecond = 200;
+    private volatile long loadMs = 0;
+    private volatile double failureRate = 0;
+    private volatile int failureStatus = 500;
+    private final Random random = new Random(42);
+
+    /**
+     * 接下来必定失败的请求数（用于确定性地测试重试与熔断）
+     */
+    private final AtomicInteger failNext = new AtomicInteger();
+
+    /**
+     * 已加载的模型（首次请求时计入冷启动耗时）
+     */
+    private final Set<String> loadedModels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 每个模型最近一次评估的system消息（模拟服务端缓存的提示词前缀）
+     */
+    private final Map<String, String> cachedPrefixes = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicLong generatedTokens = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong cachedPromptTokens = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * @param port 监听端口，0表示随机分配
+     */
+    public FakeOllamaServer(int port) {
+        this.requestedPort = port;
+    }
+
+    /**
+     * 启动服务
+     */
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", requestedPort), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("启动模拟Ollama服务失败：" + e.getMessage(), e);
+        }
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-ollama");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/api/tags", this::handleTags);
+        server.createContext("/api/generate", exchange -> handleGeneration(exchange, false));
+        server.createContext("/api/chat", exchange -> handleGeneration(exchange, true));
+        server.createContext("/api/embeddings", this::handleEmbeddings);
+        server.start();
+        logger.info("模拟Ollama服务已启动：{}", getUrl());
+    }
+
+    /**
+     * 停止服务
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        logger.info("模拟Ollama服务已停止");
+    }
+
+    /**
+     * 实际监听的端口
+     * @return 端口
+     */
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : requestedPort;
+    }
+
+    /**
+     * 服务地址，可直接作为 ollama.url
+     * @return 地址
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    /**
+     * 设置首token延迟（包含提示词评估）
+     * @param latencyMs 毫秒
+     */
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * 设置生成速度
+     * @param tokensPerSecond 每秒token数，不大于0时不限速
+     */
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    /**
+     * 设置模型首次加载的耗时（每个模型只在第一次请求时计入，模拟冷启动）
+     * @param loadMs 毫秒
+     */
+    public void setLoadMs(long loadMs) {
+        this.loadMs = loadMs;
+    }
+
+    /**
+     * 设置生成请求随机失败的比例
+     * @param failureRate 0到1之间
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * 设置注入失败时返回的状态码
+     * @param failureStatus HTTP状态码
+     */
+    public void setFailureStatus(int failureStatus) {
+        this.failureStatus = failureStatus;
+    }
+
+    /**
+     * 让接下来的若干个生成请求失败
+     * @param count 请求数
+     */
+    public void failNext(int count) {
+        failNext.set(count);
+    }
+
+    /**
+     * 清空已加载的模型和缓存的前缀，下一次请求重新计入冷启动耗时
+     */
+    public void unloadModels() {
+        loadedModels.clear();
+        cachedPrefixes.clear();
+    }
+
+    private void handleTags(HttpExchange exchange) throws IOException {
+        count(exchange);
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode entry = response.putArray("models").addObject();
+        entry.put("name", model);
+        entry.put("model", model);
+        entry.put("size", 0);
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleEmbeddings(HttpExchange exchange) throws IOException {
+        count(exchange);
+        JsonNode request = readBody(exchange);
+        if (request == null) {
+            return;
+        }
+        // 按字符哈希生成确定性的向量，相同文本得到相同结果
+        float[] vector = new float[EMBEDDING_DIMENSIONS];
+        String prompt = request.path("prompt").asText("");
+        prompt.codePoints().forEach(codePoint -> vector[Math.floorMod(codePoint * 31, EMBEDDING_DIMENSIONS)] += 1);
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode embedding = response.putArray("embedding");
+        for (float value : vector) {
+            embedding.add(norm > 0 ? value / Math.sqrt(norm) : 0);
+        }
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleGeneration(HttpExchange exchange, boolean chat) throws IOException {
+        count(exchange);
+        JsonNode request = readBody(exchange);
+        if (request == null) {
+            return;
+        }
+        if (shouldFail()) {
+            injectedFailures.incrementAndGet();
+            ObjectNode error = objectMapper.createObjectNode();
+            error.put("error", "injected failure");
+            sendJson(exchange, failureStatus, error);
+            return;
+        }
+
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            String requestModel = request.path("model").asText(model);
+            String prompt = promptOf(request, chat);
+            long loadNanos = loadedModels.add(requestModel) ? loadMs * 1_000_000 : 0;
+
+            // 首token延迟按需要评估的token比例缩短，命中前缀缓存时只评估其余部分
+            int totalTokens = estimateTokens(prompt);
+            int cachedTokens = chat ? cachedPrefixTokens(requestModel, request.path("messages")) : 0;
+            int evaluatedTokens = Math.max(totalTokens - cachedTokens, 0);
+            long promptNanos = totalTokens > 0 ? latencyMs * 1_000_000 * evaluatedTokens / totalTokens
+                : latencyMs * 1_000_000;
+            promptTokens.addAndGet(totalTokens);
+            cachedPromptTokens.addAndGet(cachedTokens);
+            sleep((loadNanos + promptNanos) / 1_000_000);
+
+            // 只有提示词的预热请求不生成内容
+            List<String> tokens = prompt.isBlank() ? List.of() : tokenize(reply(prompt, request.has("format")));
+            int numPredict = request.path("options").path("num_predict").asInt(0);
+            if (numPredict > 0 && tokens.size() > numPredict) {
+                tokens = tokens.subList(0, numPredict);
+            }
+            generatedTokens.addAndGet(tokens.size());
+
+            Timing timing = new Timing(loadNanos, evaluatedTokens, promptNanos);
+            if (request.path("stream").asBoolean(true)) {
+                stream(exchange, requestModel, chat, tokens, timing);
+            } else {
+                long evalStart = System.nanoTime();
+                sleep(generationMs(tokens.size()));
+                ObjectNode response = chunk(requestModel, chat, String.join("", tokens), true);
+                timing.complete(response, tokens.size(), System.nanoTime() - evalStart);
+                sendJson(exchange, 200, response);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 按Ollama的NDJSON格式逐个token输出
+     */
+    private void stream(HttpExchange exchange, String requestModel, boolean chat, List<String> tokens, Timing timing)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        long intervalNanos = tokensPerSecond > 0 ? (long) (1_000_000_000L / tokensPerSecond) : 0;
+        long evalStart = System.nanoTime();
+        try (OutputStream body = exchange.getResponseBody()) {
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    sleep(intervalNanos / 1_000_000);
+                }
+                writeLine(body, chunk(requestModel, chat, tokens.get(i), false));
+            }
+            ObjectNode last = chunk(requestModel, chat, "", true);
+            timing.complete(last, tokens.size(), System.nanoTime() - evalStart);
+            writeLine(body, last);
+        } catch (IOException e) {
+            // 客户端取消生成时连接被关闭
+            logger.debug("流式输出中断：{}", e.getMessage());
+        }
+    }
+
+    private void writeLine(OutputStream body, ObjectNode chunk) throws IOException {
+        body.write(objectMapper.writeValueAsBytes(chunk));
+        body.write('\n');
+        body.flush();
+    }
+
+    private ObjectNode chunk(String requestModel, boolean chat, String text, boolean done) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("model", requestModel);
+        chunk.put("created_at", Instant.now().toString());
+        if (chat) {
+            ObjectNode message = chunk.putObject("message");
+            message.put("role", "assistant");
+            message.put("content", text);
+        } else {
+            chunk.put("response", text);
+        }
+        chunk.put("done", done);
+        return chunk;
+    }
+
+    /**
+     * 根据提示词选择固定的回复：单个部分、JSON、摘要或完整的三个部分
+     */
+    private String reply(String prompt, boolean json) {
+        if (json) {
+            return structuredReply();
+        }
+        for (DiarySection section : DiarySection.values()) {
+            if (prompt.contains("只完成：" + section.getTitle())) {
+                return SECTION_CONTENT.get(section);
+            }
+        }
+        if (prompt.contains("=== " + DiarySection.DIARY.getTitle())) {
+            StringBuilder reply = new StringBuilder();
+            for (DiarySection section : DiarySection.values()) {
+                reply.append("=== ").append(section.getTitle()).append(" ===\n");
+                reply.append(SECTION_CONTENT.get(section)).append("\n\n");
+            }
+            return reply.toString().trim();
+        }
+        return SUMMARY_TEXT;
+    }
+
+    private String structuredReply() {
+        ObjectNode reply = objectMapper.createObjectNode();
+        reply.put("diary", SECTION_CONTENT.get(DiarySection.DIARY));
+        ArrayNode summary = reply.putArray("summary");
+        for (String line : SECTION_CONTENT.get(DiarySection.SUMMARY).split("\n")) {
+            summary.add(line.replaceFirst("^\\d+\\.\\s*", ""));
+        }
+        reply.put("insights", SECTION_CONTENT.get(DiarySection.INSIGHTS));
+        return reply.toString();
+    }
+
+    /**
+     * 计算命中缓存的前缀token数，并把本次的system消息记为该模型新的缓存前缀
+     * @return 第一条system消息与上次相同时为其token数，否则为0
+     */
+    private int cachedPrefixTokens(String requestModel, JsonNode messages) {
+        JsonNode first = messages.path(0);
+        if (!"system".equals(first.path("role").asText())) {
+            cachedPrefixes.remove(requestModel);
+            return 0;
+        }
+        String system = first.path("content").asText("");
+        String previous = cachedPrefixes.put(requestModel, system);
+        return system.equals(previous) ? estimateTokens(system) : 0;
+    }
+
+    private static String promptOf(JsonNode request, boolean chat) {
+        if (!chat) {
+            return request.path("prompt").asText("");
+        }
+        StringBuilder prompt = new StringBuilder();
+        for (JsonNode message : request.path("messages")) {
+            prompt.append(message.path("content").asText("")).append("\n");
+        }
+        return prompt.toString().trim();
+    }
+
+    /**
+     * 切分为token：中日韩字符每个一个token，其余每4个字符一个token
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder other = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isIdeographic(codePoint)) {
+                if (other.length() > 0) {
+                    tokens.add(other.toString());
+                    other.setLength(0);
+                }
+                tokens.add(new String(Character.toChars(codePoint)));
+            } else {
+                other.appendCodePoint(codePoint);
+                if (other.length() >= CHARS_PER_TOKEN) {
+                    tokens.add(other.toString());
+                    other.setLength(0);
+                }
+            }
+        }
+        if (other.length() > 0) {
+            tokens.add(other.toString());
+        }
+        return tokens;
+    }
+
+    private static int estimateTokens(String text) {
+        return tokenize(text).size();
+    }
+
+    private long generationMs(int tokens) {
+        return tokensPerSecond > 0 ? (long) (tokens * 1000 / tokensPerSecond) : 0;
+    }
+
+    private boolean shouldFail() {
+        if (failNext.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+            return true;
+        }
+        if (failureRate <= 0) {
+            return false;
+        }
+        synchronized (random) {
+            return random.nextDouble() < failureRate;
+        }
+    }
+
+    private void count(HttpExchange exchange) {
+        requests.computeIfAbsent(exchange.getRequestURI().getPath(), path -> new AtomicLong()).incrementAndGet();
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            ObjectNode error = objectMapper.createObjectNode();
+            error.put("error", "invalid request body");
+            sendJson(exchange, 400, error);
+            return null;
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 获取统计
+     * @return 各接口请求数、注入的失败数、提示词token数（及命中前缀缓存的部分）、生成的token数和最大并发数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Long> byPath = new LinkedHashMap<>();
+        requests.forEach((path, count) -> byPath.put(path, count.get()));
+        stats.put("url", getUrl());
+        stats.put("requests", byPath);
+        stats.put("injectedFailures", injectedFailures.get());
+        stats.put("promptTokens", promptTokens.get());
+        stats.put("cachedPromptTokens", cachedPromptTokens.get());
+        stats.put("generatedTokens", generatedTokens.get());
+        stats.put("inFlight", inFlight.get());
+        stats.put("maxInFlight", maxInFlight.get());
+        return stats;
+    }
+
+    /**
+     * 响应中的耗时字段（纳秒，与Ollama一致）
+     */
+    private record Timing(long loadNanos, int promptTokens, long promptNanos) {
+
+        void complete(ObjectNode response, int evalTokens, long evalNanos) {
+            response.put("load_duration", loadNanos);
+            response.put("prompt_eval_count", promptTokens);
+            response.put("prompt_eval_duration", promptNanos);
+            response.put("eval_count", evalTokens);
+            response.put("eval_duration", evalNanos);
+            response.put("total_duration", loadNanos + promptNanos + evalNanos);
+        }
+    }
+}
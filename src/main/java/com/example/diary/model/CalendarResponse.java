@@ -4,11 +4,11 @@ import java.util.List;
 
 public class CalendarResponse {
     private List<String> diaryDates; // 有日记的日期列表
-    private DiarySession selectedDiary; // 选中的日记内容
+    private DiarySummary selectedDiary; // 选中的日记摘要（条目需单独分页获取）
     
     public CalendarResponse() {}
     
-    public CalendarResponse(List<String> diaryDates, DiarySession selectedDiary) {
+    public CalendarResponse(List<String> diaryDates, DiarySummary selectedDiary) {
         this.diaryDates = diaryDates;
         this.selectedDiary = selectedDiary;
     }
@@ -22,11 +22,11 @@ public class CalendarResponse {
         this.diaryDates = diaryDates;
     }
     
-    public DiarySession getSelectedDiary() {
+    public DiarySummary getSelectedDiary() {
         return selectedDiary;
     }
     
-    public void setSelectedDiary(DiarySession selectedDiary) {
+    public void setSelectedDiary(DiarySummary selectedDiary) {
         this.selectedDiary = selectedDiary;
     }
 }
\ No newline at end of file
@@ -99,11 +99,15 @@ public class DiarySession {
     /**
      * 添加日记条目
      * @param content 日记内容
+     * @return 新增的条目，会话未激活时返回null
      */
-    public void addEntry(String content) {
-        if (this.active) {
-            this.entries.add(new DiaryEntry(content));
+    public DiaryEntry addEntry(String content) {
+        if (!this.active) {
+            return null;
         }
+        DiaryEntry entry = new DiaryEntry(content);
+        this.entries.add(entry);
+        return entry;
     }
     
     /**
@@ -0,0 +1,117 @@
+package com.example.diary.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 日记摘要投影
+ * 只包含日历展示所需的字段，不含日记条目列表
+ */
+public class DiarySummary {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+    
+    /**
+     * 日记条目数量
+     */
+    private int entryCount;
+    
+    /**
+     * 模型生成的完整版日记
+     */
+    private String generatedDiary;
+    
+    /**
+     * 模型生成的五点条列总结
+     */
+    private String summary;
+    
+    /**
+     * 模型生成的洞察与建议
+     */
+    private String insights;
+    
+    public DiarySummary() {}
+    
+    /**
+     * 从完整会话生成摘要
+     * @param session 日记会话
+     * @return 摘要
+     */
+    public static DiarySummary of(DiarySession session) {
+        DiarySummary summary = new DiarySummary();
+        summary.setDate(session.getDate());
+        summary.setStartTime(session.getStartTime());
+        summary.setEndTime(session.getEndTime());
+        summary.setEntryCount(session.getEntryCount());
+        summary.setGeneratedDiary(session.getGeneratedDiary());
+        summary.setSummary(session.getSummary());
+        summary.setInsights(session.getInsights());
+        return summary;
+    }
+    
+    // Getters and Setters
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+    
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+    
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+    
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+    
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+    
+    public int getEntryCount() {
+        return entryCount;
+    }
+    
+    public void setEntryCount(int entryCount) {
+        this.entryCount = entryCount;
+    }
+    
+    public String getGeneratedDiary() {
+        return generatedDiary;
+    }
+    
+    public void setGeneratedDiary(String generatedDiary) {
+        this.generatedDiary = generatedDiary;
+    }
+    
+    public String getSummary() {
+        return summary;
+    }
+    
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+    
+    public String getInsights() {
+        return insights;
+    }
+    
+    public void setInsights(String insights) {
+        this.insights = insights;
+    }
+}
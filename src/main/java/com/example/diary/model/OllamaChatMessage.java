@@ -0,0 +1,58 @@
+package com.example.diary.model;
+
+/**
+ * Ollama 对话消息（/api/chat 的请求和响应中使用）
+ */
+public class OllamaChatMessage {
+    
+    /**
+     * 角色：system、user 或 assistant
+     */
+    private String role;
+    
+    /**
+     * 消息内容
+     */
+    private String content;
+    
+    /**
+     * 默认构造函数
+     */
+    public OllamaChatMessage() {
+    }
+    
+    /**
+     * 带参数的构造函数
+     * @param role 角色
+     * @param content 消息内容
+     */
+    public OllamaChatMessage(String role, String content) {
+        this.role = role;
+        this.content = content;
+    }
+    
+    // Getter和Setter方法
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    @Override
+    public String toString() {
+        return "OllamaChatMessage{" +
+                "role='" + role + '\'' +
+                ", content='" + content + '\'' +
+                '}';
+    }
+}
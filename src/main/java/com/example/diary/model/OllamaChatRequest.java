@@ -0,0 +1,126 @@
+package com.example.diary.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Ollama 对话API（/api/chat）请求模型
+ */
+public class OllamaChatRequest {
+    
+    /**
+     * 模型名称
+     */
+    private String model;
+    
+    /**
+     * 对话消息（固定的system消息在前，便于服务端复用已评估的前缀）
+     */
+    private List<OllamaChatMessage> messages;
+    
+    /**
+     * 是否流式输出
+     */
+    private boolean stream;
+    
+    /**
+     * 模型在内存中保留的时长（如"30m"），为空时使用服务端默认值
+     */
+    @JsonProperty("keep_alive")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String keepAlive;
+    
+    /**
+     * 生成参数（上下文窗口、最大生成长度等），为空时使用服务端默认值
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private OllamaOptions options;
+    
+    /**
+     * 输出格式约束（JSON schema），为空时自由输出文本
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private JsonNode format;
+    
+    /**
+     * 默认构造函数
+     */
+    public OllamaChatRequest() {
+    }
+    
+    /**
+     * 带参数的构造函数
+     * @param model 模型名称
+     * @param messages 对话消息
+     * @param stream 是否流式输出
+     */
+    public OllamaChatRequest(String model, List<OllamaChatMessage> messages, boolean stream) {
+        this.model = model;
+        this.messages = messages;
+        this.stream = stream;
+    }
+    
+    // Getter和Setter方法
+    public String getModel() {
+        return model;
+    }
+    
+    public void setModel(String model) {
+        this.model = model;
+    }
+    
+    public List<OllamaChatMessage> getMessages() {
+        return messages;
+    }
+    
+    public void setMessages(List<OllamaChatMessage> messages) {
+        this.messages = messages;
+    }
+    
+    public boolean isStream() {
+        return stream;
+    }
+    
+    public void setStream(boolean stream) {
+        this.stream = stream;
+    }
+    
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+    
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+    
+    public OllamaOptions getOptions() {
+        return options;
+    }
+    
+    public void setOptions(OllamaOptions options) {
+        this.options = options;
+    }
+    
+    public JsonNode getFormat() {
+        return format;
+    }
+    
+    public void setFormat(JsonNode format) {
+        this.format = format;
+    }
+    
+    @Override
+    public String toString() {
+        return "OllamaChatRequest{" +
+                "model='" + model + '\'' +
+                ", messages=" + messages +
+                ", stream=" + stream +
+                ", keepAlive='" + keepAlive + '\'' +
+                ", options=" + options +
+                ", format=" + format +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.diary.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Ollama 生成参数（请求中的 options 字段），未设置的参数不发送，使用服务端默认值
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OllamaOptions {
+    
+    /**
+     * 上下文窗口大小（token数）
+     */
+    @JsonProperty("num_ctx")
+    private Integer numCtx;
+    
+    /**
+     * 最多生成的token数
+     */
+    @JsonProperty("num_predict")
+    private Integer numPredict;
+    
+    /**
+     * 默认构造函数
+     */
+    public OllamaOptions() {
+    }
+    
+    /**
+     * 带参数的构造函数
+     * @param numCtx 上下文窗口大小，为null时不发送
+     * @param numPredict 最多生成的token数，为null时不发送
+     */
+    public OllamaOptions(Integer numCtx, Integer numPredict) {
+        this.numCtx = numCtx;
+        this.numPredict = numPredict;
+    }
+    
+    // Getter和Setter方法
+    public Integer getNumCtx() {
+        return numCtx;
+    }
+    
+    public void setNumCtx(Integer numCtx) {
+        this.numCtx = numCtx;
+    }
+    
+    public Integer getNumPredict() {
+        return numPredict;
+    }
+    
+    public void setNumPredict(Integer numPredict) {
+        this.numPredict = numPredict;
+    }
+    
+    @Override
+    public String toString() {
+        return "OllamaOptions{" +
+                "numCtx=" + numCtx +
+                ", numPredict=" + numPredict +
+                '}';
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.diary.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
 /**
  * Ollama API 请求模型
  */
@@ -20,6 +24,25 @@ public class OllamaRequest {
      */
     private boolean stream;
     
+    /**
+     * 模型在内存中保留的时长（如"30m"），为空时使用服务端默认值
+     */
+    @JsonProperty("keep_alive")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String keepAlive;
+    
+    /**
+     * 生成参数（上下文窗口、最大生成长度等），为空时使用服务端默认值
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private OllamaOptions options;
+    
+    /**
+     * 输出格式约束（JSON schema），为空时自由输出文本
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private JsonNode format;
+    
     /**
      * 默认构造函数
      */
@@ -63,12 +86,39 @@ public class OllamaRequest {
         this.stream = stream;
     }
     
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+    
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+    
+    public OllamaOptions getOptions() {
+        return options;
+    }
+    
+    public void setOptions(OllamaOptions options) {
+        this.options = options;
+    }
+    
+    public JsonNode getFormat() {
+        return format;
+    }
+    
+    public void setFormat(JsonNode format) {
+        this.format = format;
+    }
+    
     @Override
     public String toString() {
         return "OllamaRequest{" +
                 "model='" + model + '\'' +
                 ", prompt='" + prompt + '\'' +
                 ", stream=" + stream +
+                ", keepAlive='" + keepAlive + '\'' +
+                ", options=" + options +
+                ", format=" + format +
                 '}';
     }
 }
\ No newline at end of file
@@ -20,11 +20,46 @@ public class OllamaResponse {
      */
     private String response;
     
+    /**
+     * 对话API的响应消息（/api/chat 返回message而不是response）
+     */
+    private OllamaChatMessage message;
+    
     /**
      * 是否完成
      */
     private boolean done;
     
+    /**
+     * 加载模型耗时（纳秒），模型已在内存中时接近0
+     */
+    private Long load_duration;
+    
+    /**
+     * 提示词评估的token数
+     */
+    private Integer prompt_eval_count;
+    
+    /**
+     * 提示词评估耗时（纳秒）
+     */
+    private Long prompt_eval_duration;
+    
+    /**
+     * 生成的token数
+     */
+    private Integer eval_count;
+    
+    /**
+     * 生成耗时（纳秒）
+     */
+    private Long eval_duration;
+    
+    /**
+     * 请求总耗时（纳秒）
+     */
+    private Long total_duration;
+    
     /**
      * 默认构造函数
      */
@@ -56,6 +91,14 @@ public class OllamaResponse {
         this.response = response;
     }
     
+    public OllamaChatMessage getMessage() {
+        return message;
+    }
+    
+    public void setMessage(OllamaChatMessage message) {
+        this.message = message;
+    }
+    
     public boolean isDone() {
         return done;
     }
@@ -64,6 +107,54 @@ public class OllamaResponse {
         this.done = done;
     }
     
+    public Long getLoad_duration() {
+        return load_duration;
+    }
+    
+    public void setLoad_duration(Long load_duration) {
+        this.load_duration = load_duration;
+    }
+    
+    public Integer getPrompt_eval_count() {
+        return prompt_eval_count;
+    }
+    
+    public void setPrompt_eval_count(Integer prompt_eval_count) {
+        this.prompt_eval_count = prompt_eval_count;
+    }
+    
+    public Long getPrompt_eval_duration() {
+        return prompt_eval_duration;
+    }
+    
+    public void setPrompt_eval_duration(Long prompt_eval_duration) {
+        this.prompt_eval_duration = prompt_eval_duration;
+    }
+    
+    public Integer getEval_count() {
+        return eval_count;
+    }
+    
+    public void setEval_count(Integer eval_count) {
+        this.eval_count = eval_count;
+    }
+    
+    public Long getEval_duration() {
+        return eval_duration;
+    }
+    
+    public void setEval_duration(Long eval_duration) {
+        this.eval_duration = eval_duration;
+    }
+    
+    public Long getTotal_duration() {
+        return total_duration;
+    }
+    
+    public void setTotal_duration(Long total_duration) {
+        this.total_duration = total_duration;
+    }
+    
     @Override
     public String toString() {
         return "OllamaResponse{" +
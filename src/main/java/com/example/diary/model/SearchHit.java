@@ -0,0 +1,55 @@
+package com.example.diary.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDate;
+
+/**
+ * 全文检索结果
+ */
+public class SearchHit {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+    
+    /**
+     * 相关度得分（BM25）
+     */
+    private double score;
+    
+    /**
+     * 命中位置附近的文本片段
+     */
+    private String snippet;
+    
+    public SearchHit() {}
+    
+    public SearchHit(LocalDate date, double score, String snippet) {
+        this.date = date;
+        this.score = score;
+        this.snippet = snippet;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+    
+    public double getScore() {
+        return score;
+    }
+    
+    public void setScore(double score) {
+        this.score = score;
+    }
+    
+    public String getSnippet() {
+        return snippet;
+    }
+    
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
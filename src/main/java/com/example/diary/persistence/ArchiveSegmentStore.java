@@ -0,0 +1,396 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 月度归档段存储
+ * 把早于 diary.archive.after-days 天的每日日记文件打包为 archive/segment_yyyy-MM.&lt;代&gt;.dat，
+ * 并配一个定长偏移索引 .idx（每月31个槽位，每槽 8字节偏移 + 4字节长度），
+ * 两个文件都以 MappedByteBuffer 映射，读取任意一天只需一次映射内存读取。
+ * 段文件只追加新一代而不原地修改，旧一代在切换后删除。
+ */
+@Component
+public class ArchiveSegmentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveSegmentStore.class);
+
+    private static final String ARCHIVE_DIRECTORY = "archive";
+    private static final String FILE_PREFIX = "segment_";
+    private static final String DATA_SUFFIX = ".dat";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private static final int SLOTS = 31;
+    private static final int SLOT_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * 数据存储目录
+     */
+    @Value("${diary.data.directory:./data}")
+    private String dataDirectory;
+
+    /**
+     * 是否启用归档
+     */
+    @Value("${diary.archive.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 早于多少天的日记会被归档
+     */
+    @Value("${diary.archive.after-days:30}")
+    private int afterDays;
+
+    /**
+     * 归档任务执行间隔（分钟）
+     */
+    @Value("${diary.archive.interval-minutes:60}")
+    private long intervalMinutes;
+
+    private final DiaryDateIndex dateIndex;
+
+    private final AtomicFileWriter fileWriter;
+
+    /**
+     * 月份 -> 当前一代的映射段
+     */
+    private final Map<YearMonth, MappedSegment> segments = new ConcurrentHashMap<>();
+
+    /**
+     * 归档任务（写锁）与每日文件写入（读锁）互斥，避免删除归档期间刚被重写的每日文件；
+     * 每日文件写入之间不互斥，可以被组提交合并
+     */
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+
+    private ScheduledExecutorService compactionExecutor;
+
+    public ArchiveSegmentStore(DiaryDateIndex dateIndex, AtomicFileWriter fileWriter) {
+        this.dateIndex = dateIndex;
+        this.fileWriter = fileWriter;
+    }
+
+    /**
+     * 加载已有的段并启动定时归档任务
+     */
+    @PostConstruct
+    public void init() {
+        loadSegments();
+
+        if (enabled) {
+            compactionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "diary-archive-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactionExecutor.scheduleWithFixedDelay(this::compactSafely, 1, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * 扫描归档目录，每个月份只保留最新一代
+     */
+    private void loadSegments() {
+        Path directory = archiveDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        Map<YearMonth, TreeMap<Long, Path>> generations = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + INDEX_SUFFIX)) {
+            for (Path indexPath : stream) {
+                SegmentName name = SegmentName.parse(indexPath.getFileName().toString());
+                if (name != null && Files.exists(dataPath(name.month(), name.generation()))) {
+                    generations.computeIfAbsent(name.month(), m -> new TreeMap<>()).put(name.generation(), indexPath);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("扫描归档目录失败", e);
+            return;
+        }
+
+        for (Map.Entry<YearMonth, TreeMap<Long, Path>> entry : generations.entrySet()) {
+            YearMonth month = entry.getKey();
+            long generation = entry.getValue().lastKey();
+            try {
+                MappedSegment segment = MappedSegment.open(month, generation,
+                    dataPath(month, generation), indexPath(month, generation));
+                segments.put(month, segment);
+                registerDates(segment);
+            } catch (IOException e) {
+                logger.error("加载归档段失败：{}", month, e);
+                continue;
+            }
+            // 清理切换时未能删除的旧一代
+            for (Long old : entry.getValue().headMap(generation).keySet()) {
+                deleteGeneration(month, old);
+            }
+        }
+        logger.info("已加载{}个归档段", segments.size());
+    }
+
+    private void registerDates(MappedSegment segment) {
+        for (int day = 1; day <= segment.month().lengthOfMonth(); day++) {
+            LocalDate date = segment.month().atDay(day);
+            if (segment.contains(day) && dateIndex.pathOf(date) == null) {
+                dateIndex.put(date, segment.dataPath());
+            }
+        }
+    }
+
+    /**
+     * 判断索引中的路径是否指向归档段
+     * @param path 索引中的路径
+     * @return 是否为归档段
+     */
+    public boolean isSegment(Path path) {
+        return path.getFileName().toString().startsWith(FILE_PREFIX) && path.toString().endsWith(DATA_SUFFIX);
+    }
+
+    /**
+     * 从归档段读取某一天的原始记录
+     * @param date 日期
+     * @return 记录字节，不存在时返回null
+     */
+    public byte[] read(LocalDate date) {
+        MappedSegment segment = segments.get(YearMonth.from(date));
+        return segment != null ? segment.read(date.getDayOfMonth()) : null;
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            logger.error("归档任务失败", e);
+        }
+    }
+
+    /**
+     * 把早于阈值的每日文件打包进对应月份的段
+     */
+    public void compact() {
+        compactionLock.writeLock().lock();
+        try {
+            compactOlderThan(LocalDate.now().minusDays(afterDays));
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    private void compactOlderThan(LocalDate cutoff) {
+        Map<YearMonth, Map<Integer, Path>> candidates = new TreeMap<>();
+        for (LocalDate date : dateIndex.dates().headSet(cutoff, false)) {
+            Path path = dateIndex.pathOf(date);
+            if (path != null && !isSegment(path)) {
+                candidates.computeIfAbsent(YearMonth.from(date), m -> new TreeMap<>()).put(date.getDayOfMonth(), path);
+            }
+        }
+
+        for (Map.Entry<YearMonth, Map<Integer, Path>> entry : candidates.entrySet()) {
+            try {
+                compactMonth(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                logger.error("归档月份失败：{}", entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * 写出新一代段：旧段中的记录 + 新的每日文件（同一天以每日文件为准）
+     */
+    private void compactMonth(YearMonth month, Map<Integer, Path> dailyFiles) throws IOException {
+        MappedSegment previous = segments.get(month);
+        long generation = previous != null ? previous.generation() + 1 : 1;
+
+        Map<Integer, byte[]> records = new TreeMap<>();
+        if (previous != null) {
+            for (int day = 1; day <= SLOTS; day++) {
+                byte[] record = previous.read(day);
+                if (record != null) {
+                    records.put(day, record);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Path> daily : dailyFiles.entrySet()) {
+            records.put(daily.getKey(), Files.readAllBytes(daily.getValue()));
+        }
+
+        Files.createDirectories(archiveDirectory());
+        Path dataPath = dataPath(month, generation);
+        Path indexPath = indexPath(month, generation);
+
+        ByteBuffer index = ByteBuffer.allocate(SLOTS * SLOT_SIZE);
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = 0;
+            for (Map.Entry<Integer, byte[]> record : records.entrySet()) {
+                ByteBuffer buffer = ByteBuffer.wrap(record.getValue());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                index.putLong((record.getKey() - 1) * SLOT_SIZE, offset);
+                index.putInt((record.getKey() - 1) * SLOT_SIZE + Long.BYTES, record.getValue().length);
+                offset += record.getValue().length;
+            }
+            channel.force(true);
+        }
+
+        // 索引最后原子写入，启动时只认索引完整的一代
+        fileWriter.write(indexPath, index.array());
+
+        MappedSegment segment = MappedSegment.open(month, generation, dataPath, indexPath);
+        segments.put(month, segment);
+        for (Integer day : records.keySet()) {
+            dateIndex.put(month.atDay(day), dataPath);
+        }
+
+        // 索引已指向段后再删除每日文件
+        for (Path daily : dailyFiles.values()) {
+            Files.deleteIfExists(daily);
+        }
+        if (previous != null) {
+            deleteGeneration(month, previous.generation());
+        }
+
+        logger.info("已归档{}：{}天，段大小{}字节", month, records.size(), Files.size(dataPath));
+    }
+
+    private void deleteGeneration(YearMonth month, long generation) {
+        try {
+            Files.deleteIfExists(indexPath(month, generation));
+            Files.deleteIfExists(dataPath(month, generation));
+        } catch (IOException e) {
+            // Windows下仍被映射的文件无法删除，下次启动时再清理
+            logger.debug("删除旧归档段失败：{}.{}", month, generation);
+        }
+    }
+
+    /**
+     * 获取归档与每日文件写入之间的读写锁（写入每日文件时持有读锁）
+     * @return 读写锁
+     */
+    public ReadWriteLock getCompactionLock() {
+        return compactionLock;
+    }
+
+    /**
+     * 获取归档统计
+     * @return 段数量、已归档天数
+     */
+    public Map<String, Object> getStats() {
+        int days = 0;
+        for (MappedSegment segment : segments.values()) {
+            for (int day = 1; day <= SLOTS; day++) {
+                if (segment.contains(day)) {
+                    days++;
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("segments", segments.size());
+        stats.put("archivedDays", days);
+        return stats;
+    }
+
+    private Path archiveDirectory() {
+        return Paths.get(dataDirectory, ARCHIVE_DIRECTORY);
+    }
+
+    private Path dataPath(YearMonth month, long generation) {
+        return archiveDirectory().resolve(FILE_PREFIX + month + "." + generation + DATA_SUFFIX);
+    }
+
+    private Path indexPath(YearMonth month, long generation) {
+        return archiveDirectory().resolve(FILE_PREFIX + month + "." + generation + INDEX_SUFFIX);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 段文件名：segment_yyyy-MM.&lt;代&gt;.idx
+     */
+    private record SegmentName(YearMonth month, long generation) {
+
+        static SegmentName parse(String fileName) {
+            String body = fileName.substring(FILE_PREFIX.length(), fileName.length() - INDEX_SUFFIX.length());
+            int dot = body.indexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            try {
+                return new SegmentName(YearMonth.parse(body.substring(0, dot)), Long.parseLong(body.substring(dot + 1)));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 一个已映射到内存的段（数据 + 定长索引）
+     */
+    private record MappedSegment(YearMonth month, long generation, Path dataPath,
+                                 MappedByteBuffer data, MappedByteBuffer index) {
+
+        static MappedSegment open(YearMonth month, long generation, Path dataPath, Path indexPath) throws IOException {
+            MappedByteBuffer data;
+            MappedByteBuffer index;
+            try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                if (channel.size() != (long) SLOTS * SLOT_SIZE) {
+                    throw new IOException("归档索引大小不正确：" + indexPath);
+                }
+                index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            return new MappedSegment(month, generation, dataPath, data, index);
+        }
+
+        boolean contains(int day) {
+            return index.getInt((day - 1) * SLOT_SIZE + Long.BYTES) > 0;
+        }
+
+        byte[] read(int day) {
+            int length = index.getInt((day - 1) * SLOT_SIZE + Long.BYTES);
+            if (length <= 0) {
+                return null;
+            }
+            long offset = index.getLong((day - 1) * SLOT_SIZE);
+            byte[] record = new byte[length];
+            // 使用绝对位置读取，多个线程可以并发访问同一段
+            data.get((int) offset, record);
+            return record;
+        }
+    }
+}
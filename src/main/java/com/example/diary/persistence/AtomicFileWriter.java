@@ -0,0 +1,278 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 原子文件写入器
+ * 先写临时文件并fsync，再原子重命名为目标文件，最后fsync所在目录，
+ * 读者只会看到完整的旧文件或完整的新文件。
+ * 组提交模式下，短时间窗口内到达的多个写入合并为一轮提交：每个临时文件仍需各自fsync，
+ * 但目录fsync按轮共享，N个写入同一目录的文件只需N+1次fsync而不是2N次。
+ */
+@Component
+public class AtomicFileWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFileWriter.class);
+
+    /**
+     * 是否启用组提交
+     */
+    @Value("${diary.data.group-commit.enabled:true}")
+    private boolean groupCommitEnabled;
+
+    /**
+     * 组提交等待窗口（毫秒）
+     */
+    @Value("${diary.data.group-commit.window-ms:5}")
+    private long windowMs;
+
+    private final List<PendingWrite> pending = new ArrayList<>();
+    private final AtomicLong tempSequence = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong commitRounds = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+
+    private Thread committer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!groupCommitEnabled) {
+            return;
+        }
+        running = true;
+        committer = new Thread(this::commitLoop, "diary-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * 原子写入文件，返回时数据已持久化
+     * @param target 目标文件
+     * @param data 文件内容
+     * @throws IOException 写入失败
+     */
+    public void write(Path target, byte[] data) throws IOException {
+        PendingWrite write = new PendingWrite(target, data);
+        boolean queued;
+        synchronized (pending) {
+            // 与shutdown()在同一把锁下判断，关闭后到达的写入不会滞留在队列里
+            queued = running;
+            if (queued) {
+                pending.add(write);
+                pending.notifyAll();
+            }
+        }
+        if (!queued) {
+            commit(List.of(write));
+        }
+        
+        try {
+            write.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待写入完成时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 组提交循环：收到第一个写入后等待一个窗口，把期间到达的写入一起提交
+     */
+    private void commitLoop() {
+        while (running) {
+            List<PendingWrite> batch;
+            try {
+                synchronized (pending) {
+                    while (pending.isEmpty() && running) {
+                        pending.wait();
+                    }
+                }
+                Thread.sleep(windowMs);
+                synchronized (pending) {
+                    batch = new ArrayList<>(pending);
+                    pending.clear();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            commit(batch);
+        }
+    }
+
+    /**
+     * 一轮提交：写临时文件并fsync -> 按到达顺序原子重命名 -> fsync涉及的目录。
+     * 每个写入单独完成：某个文件写入或重命名失败时只让该写入失败，已重命名的写入照常完成
+     */
+    private void commit(List<PendingWrite> batch) {
+        Map<PendingWrite, Path> temps = new LinkedHashMap<>();
+        Set<Path> directories = new LinkedHashSet<>();
+        List<PendingWrite> moved = new ArrayList<>();
+        try {
+            for (PendingWrite write : batch) {
+                Path temp = write.target.resolveSibling(
+                    write.target.getFileName() + "." + tempSequence.incrementAndGet() + ".tmp");
+                try {
+                    writeAndSync(temp, write.data);
+                    temps.put(write, temp);
+                } catch (IOException | RuntimeException e) {
+                    fail(write, e);
+                    deleteQuietly(temp);
+                }
+            }
+
+            for (Map.Entry<PendingWrite, Path> entry : temps.entrySet()) {
+                PendingWrite write = entry.getKey();
+                try {
+                    move(entry.getValue(), write.target);
+                    directories.add(write.target.toAbsolutePath().getParent());
+                    moved.add(write);
+                } catch (IOException | RuntimeException e) {
+                    fail(write, e);
+                }
+            }
+            for (Path directory : directories) {
+                syncDirectory(directory);
+            }
+            moved.forEach(write -> write.done.complete(null));
+            writes.addAndGet(moved.size());
+            commitRounds.incrementAndGet();
+        } finally {
+            for (Path temp : temps.values()) {
+                deleteQuietly(temp);
+            }
+            // 意外异常时也不能让等待者永远阻塞
+            for (PendingWrite write : batch) {
+                if (!write.done.isDone()) {
+                    write.done.completeExceptionally(new IOException("写入未完成：" + write.target));
+                }
+            }
+        }
+    }
+
+    private void fail(PendingWrite write, Exception e) {
+        logger.error("写入文件失败：{}", write.target, e);
+        write.done.completeExceptionally(e);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("无法删除临时文件：{}", path);
+        }
+    }
+
+    private void writeAndSync(Path path, byte[] data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+            fsyncs.incrementAndGet();
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * fsync目录使重命名持久化（Windows不支持打开目录，忽略）
+     */
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+            fsyncs.incrementAndGet();
+        } catch (IOException e) {
+            logger.debug("无法同步目录：{}", directory);
+        }
+    }
+
+    /**
+     * 获取写入统计
+     * @return 写入文件数、提交轮数和实际fsync次数（每个文件一次，每轮每个目录一次）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("groupCommit", groupCommitEnabled);
+        stats.put("writes", writes.get());
+        stats.put("commitRounds", commitRounds.get());
+        stats.put("fsyncs", fsyncs.get());
+        return stats;
+    }
+
+    /**
+     * 关闭前提交剩余的写入
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        synchronized (pending) {
+            running = false;
+            pending.notifyAll();
+        }
+        committer.join();
+
+        List<PendingWrite> remaining;
+        synchronized (pending) {
+            remaining = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (!remaining.isEmpty()) {
+            commit(remaining);
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final Path target;
+        private final byte[] data;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(Path target, byte[] data) {
+            this.target = target;
+            this.data = data;
+        }
+    }
+}
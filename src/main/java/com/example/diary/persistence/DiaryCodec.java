@@ -0,0 +1,74 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+
+import com.example.diary.model.DiarySession;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 日记磁盘编码格式
+ * 每种格式对应一个Jackson数据格式，读取时根据文件头自动识别
+ */
+public interface DiaryCodec {
+    
+    /**
+     * 格式名称（对应 diary.data.format 配置）
+     * @return 格式名称
+     */
+    String getName();
+    
+    /**
+     * 日记文件扩展名（含点号）
+     * @return 扩展名
+     */
+    String getExtension();
+    
+    /**
+     * 该格式使用的ObjectMapper
+     * @return ObjectMapper
+     */
+    ObjectMapper getObjectMapper();
+    
+    /**
+     * 判断文件内容是否为该格式
+     * @param header 文件开头的若干字节
+     * @return 是否匹配
+     */
+    boolean matches(byte[] header);
+    
+    /**
+     * 判断文件是否已按当前写入配置编码（例如JSON是否为紧凑格式），不是时迁移器会重写该文件
+     * @param header 文件开头的若干字节
+     * @return 是否无需重写
+     */
+    default boolean isCurrentEncoding(byte[] header) {
+        return true;
+    }
+    
+    /**
+     * 编码日记会话
+     * @param session 日记会话
+     * @return 编码后的字节
+     * @throws IOException 编码失败
+     */
+    byte[] encode(DiarySession session) throws IOException;
+    
+    /**
+     * 解码日记会话
+     * @param data 文件内容
+     * @return 日记会话
+     * @throws IOException 解码失败
+     */
+    default DiarySession decode(byte[] data) throws IOException {
+        return getObjectMapper().readValue(data, DiarySession.class);
+    }
+    
+    /**
+     * 落盘时忽略可由 entries 推导出的冗余字段
+     * （mixin会覆盖类上的同名注解，因此需要重新声明ignoreUnknown）
+     */
+    @JsonIgnoreProperties(value = {"entryCount", "entryContents"}, ignoreUnknown = true)
+    abstract class StorageMixin {
+    }
+}
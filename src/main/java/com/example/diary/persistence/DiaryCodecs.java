@@ -0,0 +1,60 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 日记编码格式注册表
+ * 写入使用 diary.data.format 指定的格式，读取时根据文件头识别格式
+ */
+@Component
+public class DiaryCodecs {
+    
+    private final List<DiaryCodec> codecs;
+    private final DiaryCodec writeCodec;
+    
+    public DiaryCodecs(@Value("${diary.data.format:json}") String format,
+                       @Value("${diary.data.pretty-print:false}") boolean prettyPrint) {
+        this.codecs = List.of(new JsonDiaryCodec(prettyPrint), new SmileDiaryCodec());
+        this.writeCodec = codecs.stream()
+            .filter(codec -> codec.getName().equalsIgnoreCase(format))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("不支持的日记存储格式：" + format));
+    }
+    
+    /**
+     * 获取写入使用的格式
+     * @return 写入格式
+     */
+    public DiaryCodec getWriteCodec() {
+        return writeCodec;
+    }
+    
+    /**
+     * 根据文件内容识别格式
+     * @param data 文件内容
+     * @return 匹配的格式
+     * @throws IOException 无法识别时抛出
+     */
+    public DiaryCodec detect(byte[] data) throws IOException {
+        byte[] header = Arrays.copyOf(data, Math.min(data.length, 16));
+        for (DiaryCodec codec : codecs) {
+            if (codec.matches(header)) {
+                return codec;
+            }
+        }
+        throw new IOException("无法识别的日记文件格式");
+    }
+    
+    /**
+     * 所有支持的文件扩展名
+     * @return 扩展名列表
+     */
+    public List<String> getExtensions() {
+        return codecs.stream().map(DiaryCodec::getExtension).toList();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 日记日期索引
+ * 启动时扫描一次数据目录，之后由保存操作和目录监听保持同步，
+ * 日期列表、按月查询和存在性检查都只访问内存中的有序映射
+ */
+@Component
+public class DiaryDateIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiaryDateIndex.class);
+
+    private static final String FILE_PREFIX = "diary_";
+
+    /**
+     * 数据存储目录
+     */
+    @Value("${diary.data.directory:./data}")
+    private String dataDirectory;
+
+    /**
+     * 日期 -> 日记文件
+     */
+    private final ConcurrentSkipListMap<LocalDate, Path> dates = new ConcurrentSkipListMap<>();
+
+    private final DiaryCodecs codecs;
+
+    private WatchService watchService;
+
+    public DiaryDateIndex(DiaryCodecs codecs) {
+        this.codecs = codecs;
+    }
+
+    /**
+     * 构建索引并启动目录监听
+     */
+    @PostConstruct
+    public void init() {
+        Path directory = Paths.get(dataDirectory);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            logger.error("创建数据目录失败：{}", dataDirectory, e);
+            return;
+        }
+
+        rebuild(directory);
+        startWatching(directory);
+    }
+
+    /**
+     * 全量扫描数据目录重建索引
+     */
+    private void rebuild(Path directory) {
+        Map<LocalDate, Path> found = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+            for (Path path : stream) {
+                LocalDate date = parseDate(path.getFileName().toString());
+                if (date != null) {
+                    // 迁移中断时同一天可能同时存在两种格式，优先使用当前写入格式
+                    found.merge(date, path, (existing, candidate) -> isWriteFormat(candidate) ? candidate : existing);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("扫描数据目录失败：{}", directory, e);
+            return;
+        }
+
+        // 只替换每日文件的映射，指向归档段的映射由归档存储维护
+        dates.entrySet().removeIf(entry -> directory.equals(entry.getValue().getParent())
+            && !entry.getValue().equals(found.get(entry.getKey())));
+        dates.putAll(found);
+        logger.info("日记日期索引已建立，共{}天", dates.size());
+    }
+
+    /**
+     * 监听数据目录，同步外部新增或删除的日记文件
+     */
+    private void startWatching(Path directory) {
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.warn("无法监听数据目录，索引仅由保存操作维护：{}", e.getMessage());
+            return;
+        }
+
+        Thread watchThread = new Thread(() -> watchLoop(directory), "diary-date-index-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watchLoop(Path directory) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // 事件丢失时退回全量扫描
+                        rebuild(directory);
+                        continue;
+                    }
+                    Path fileName = (Path) event.context();
+                    LocalDate date = parseDate(fileName.toString());
+                    if (date == null) {
+                        continue;
+                    }
+                    Path path = directory.resolve(fileName);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        dates.merge(date, path, (existing, candidate) -> isWriteFormat(existing) ? existing : candidate);
+                    } else {
+                        // 只移除指向被删除文件的映射，格式迁移删除旧文件时不影响新文件
+                        dates.remove(date, path);
+                    }
+                }
+                if (!key.reset()) {
+                    logger.warn("数据目录监听已失效：{}", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 应用关闭
+        }
+    }
+
+    /**
+     * 记录日记文件（保存后调用）
+     * @param date 日期
+     * @param path 日记文件
+     */
+    public void put(LocalDate date, Path path) {
+        dates.put(date, path);
+    }
+
+    /**
+     * 检查指定日期是否有日记
+     * @param date 日期
+     * @return 是否存在
+     */
+    public boolean contains(LocalDate date) {
+        return dates.containsKey(date);
+    }
+
+    /**
+     * 获取指定日期的日记文件
+     * @param date 日期
+     * @return 日记文件，不存在时返回null
+     */
+    public Path pathOf(LocalDate date) {
+        return dates.get(date);
+    }
+
+    /**
+     * 获取所有有日记的日期（升序）
+     * @return 只读的有序日期视图
+     */
+    public NavigableSet<LocalDate> dates() {
+        return Collections.unmodifiableNavigableSet(dates.navigableKeySet());
+    }
+
+    /**
+     * 获取指定月份中有日记的日期（升序）
+     * @param month 月份
+     * @return 只读的有序日期视图
+     */
+    public NavigableSet<LocalDate> datesIn(YearMonth month) {
+        return Collections.unmodifiableNavigableSet(
+            dates.navigableKeySet().subSet(month.atDay(1), true, month.atEndOfMonth(), true));
+    }
+
+    /**
+     * 从文件名解析日期：diary_2025-12-14.json -> 2025-12-14
+     * @param fileName 文件名
+     * @return 日期，文件名不符合格式时返回null
+     */
+    LocalDate parseDate(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX)) {
+            return null;
+        }
+        for (String extension : codecs.getExtensions()) {
+            if (fileName.endsWith(extension)) {
+                try {
+                    return LocalDate.parse(fileName.substring(FILE_PREFIX.length(), fileName.length() - extension.length()));
+                } catch (DateTimeParseException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isWriteFormat(Path path) {
+        return path.getFileName().toString().endsWith(codecs.getWriteCodec().getExtension());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("关闭目录监听失败", e);
+            }
+        }
+    }
+}
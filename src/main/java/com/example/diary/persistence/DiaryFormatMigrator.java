@@ -0,0 +1,78 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 日记格式迁移器
+ * 应用启动后在后台线程中把旧格式的日记文件（如 diary_*.json）重写为当前存储格式，
+ * 与当前编码配置不一致的同格式文件（如默认紧凑JSON配置下的缩进JSON）也会被重写
+ */
+@Component
+public class DiaryFormatMigrator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiaryFormatMigrator.class);
+    
+    /**
+     * 是否在启动后自动迁移
+     */
+    @Value("${diary.data.migrate:true}")
+    private boolean migrateOnStartup;
+    
+    private final FileDiaryRepository diaryRepository;
+    private final DiaryDateIndex dateIndex;
+    
+    public DiaryFormatMigrator(FileDiaryRepository diaryRepository, DiaryDateIndex dateIndex) {
+        this.diaryRepository = diaryRepository;
+        this.dateIndex = dateIndex;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "diary-format-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * 逐个重写旧格式文件，单个文件失败不影响其他文件
+     */
+    private void migrate() {
+        List<LocalDate> dates = new ArrayList<>(dateIndex.dates());
+        int migrated = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+        
+        for (LocalDate date : dates) {
+            try {
+                Path before = dateIndex.pathOf(date);
+                long sizeBefore = before != null ? Files.size(before) : 0;
+                if (diaryRepository.rewriteInWriteFormat(date)) {
+                    migrated++;
+                    bytesBefore += sizeBefore;
+                    bytesAfter += Files.size(dateIndex.pathOf(date));
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("迁移日记文件失败：{}，{}", date, e.getMessage());
+            }
+        }
+        
+        if (migrated > 0) {
+            logger.info("日记格式迁移完成：{}个文件，{}字节 -> {}字节", migrated, bytesBefore, bytesAfter);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.example.diary.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.diary.model.DiaryEntry;
+import com.example.diary.model.DiarySession;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 日记全文倒排索引
+ * 每一天的日记作为一篇文档，覆盖日记条目、完整版日记、总结和洞察；
+ * 保存会话时增量更新，按BM25对查询结果排序。
+ * 正排部分（日期 -> 版本与词频）增量持久化：每次落盘只把变化的日期追加到 index/search_index.log，
+ * 日志记录数超过阈值时合并为快照 index/search_index.json 并清空日志；启动时加载快照、重放日志并重建倒排表。
+ * 版本为日记文件的修改时间，启动补建据此发现最后一次落盘后又被改写的日期。
+ */
+@Component
+public class DiarySearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarySearchIndex.class);
+
+    private static final String INDEX_DIRECTORY = "index";
+    private static final String INDEX_FILE = "search_index.json";
+    private static final String LOG_FILE = "search_index.log";
+
+    /**
+     * BM25参数
+     */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * 数据存储目录
+     */
+    @Value("${diary.data.directory:./data}")
+    private String dataDirectory;
+
+    /**
+     * 索引落盘间隔（毫秒），期间的多次更新合并为一次写入
+     */
+    @Value("${diary.search.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    /**
+     * 日志记录数超过该值（且超过文档数）时合并为新快照
+     */
+    @Value("${diary.search.compact-entries:256}")
+    private int compactEntries;
+
+    private final AtomicFileWriter fileWriter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 正排：日期 -> (词项 -> 词频)
+     */
+    private final Map<LocalDate, Map<String, Integer>> documents = new HashMap<>();
+
+    /**
+     * 倒排：词项 -> (日期 -> 词频)
+     */
+    private final Map<String, Map<LocalDate, Integer>> postings = new HashMap<>();
+
+    /**
+     * 日期 -> 文档长度（词项总数）
+     */
+    private final Map<LocalDate, Integer> lengths = new HashMap<>();
+
+    /**
+     * 日期 -> 索引时日记文件的版本（修改时间）
+     */
+    private final Map<LocalDate, Long> versions = new HashMap<>();
+
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 上次落盘后变化（索引或移除）的日期，由写锁保护
+     */
+    private final Set<LocalDate> changed = new TreeSet<>();
+
+    /**
+     * 日志中的记录数，只在落盘线程中读写
+     */
+    private long logEntries;
+
+    private final AtomicLong appendedEntries = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+
+    private ScheduledExecutorService flushExecutor;
+
+    public DiarySearchIndex(AtomicFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
+    }
+
+    @PostConstruct
+    public void init() {
+        load();
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "diary-search-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 索引（或重新索引）一天的日记
+     * @param session 日记会话
+     * @param version 日记文件的版本（修改时间）
+     */
+    public void index(DiarySession session, long version) {
+        Map<String, Integer> terms = termFrequencies(session);
+        lock.writeLock().lock();
+        try {
+            removeDocument(session.getDate());
+            addDocument(session.getDate(), terms, version);
+            changed.add(session.getDate());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 仅在该日期的索引版本仍为预期值时重新索引（启动补建使用，避免覆盖期间保存的新内容）
+     * @param session 日记会话
+     * @param version 日记文件的版本（修改时间）
+     * @param expectedVersion 读取日记前看到的索引版本，尚未索引时为null
+     * @return 是否发生了索引
+     */
+    public boolean indexIfUnchanged(DiarySession session, long version, Long expectedVersion) {
+        Map<String, Integer> terms = termFrequencies(session);
+        lock.writeLock().lock();
+        try {
+            Long current = versions.get(session.getDate());
+            if (current == null ? expectedVersion != null : !current.equals(expectedVersion)) {
+                return false;
+            }
+            removeDocument(session.getDate());
+            addDocument(session.getDate(), terms, version);
+            changed.add(session.getDate());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引中移除一天的日记
+     * @param date 日期
+     */
+    public void remove(LocalDate date) {
+        lock.writeLock().lock();
+        try {
+            if (removeDocument(date)) {
+                changed.add(date);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 获取已索引的日期及其版本
+     * @return 日期 -> 版本（副本）
+     */
+    public Map<LocalDate, Long> indexedVersions() {
+        lock.readLock().lock();
+        try {
+            return new HashMap<>(versions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按BM25检索，任一查询词项命中即为候选
+     * @param query 查询文本
+     * @param limit 最多返回的结果数
+     * @return 按得分降序排列的日期与得分
+     */
+    public List<Map.Entry<LocalDate, Double>> search(String query, int limit) {
+        List<String> queryTerms = DiaryTokenizer.tokenizeQuery(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<LocalDate, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double averageLength = documentCount > 0 ? (double) totalLength / documentCount : 0;
+
+            for (String term : queryTerms) {
+                Map<LocalDate, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<LocalDate, Integer> hit : posting.entrySet()) {
+                    int frequency = hit.getValue();
+                    double norm = 1 - B + B * lengths.get(hit.getKey()) / averageLength;
+                    double score = idf * frequency * (K1 + 1) / (frequency + K1 * norm);
+                    scores.merge(hit.getKey(), score, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<LocalDate, Double>> ranked = new ArrayList<>(scores.entrySet());
+        // 得分相同时较新的日期在前
+        ranked.sort(Map.Entry.<LocalDate, Double>comparingByValue().reversed()
+            .thenComparing(Map.Entry.<LocalDate, Double>comparingByKey().reversed()));
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    private void addDocument(LocalDate date, Map<String, Integer> terms, long version) {
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(date, term.getValue());
+            length += term.getValue();
+        }
+        documents.put(date, terms);
+        versions.put(date, version);
+        lengths.put(date, length);
+        totalLength += length;
+    }
+
+    private boolean removeDocument(LocalDate date) {
+        Map<String, Integer> terms = documents.remove(date);
+        if (terms == null) {
+            return false;
+        }
+        for (String term : terms.keySet()) {
+            Map<LocalDate, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(date);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        versions.remove(date);
+        Integer length = lengths.remove(date);
+        totalLength -= length != null ? length : 0;
+        return true;
+    }
+
+    /**
+     * 统计会话中所有可检索文本的词频
+     */
+    private static Map<String, Integer> termFrequencies(DiarySession session) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (DiaryEntry entry : session.getEntries()) {
+            countTerms(entry.getContent(), terms);
+        }
+        countTerms(session.getGeneratedDiary(), terms);
+        countTerms(session.getSummary(), terms);
+        countTerms(session.getInsights(), terms);
+        return terms;
+    }
+
+    private static void countTerms(String text, Map<String, Integer> terms) {
+        for (String token : DiaryTokenizer.tokenize(text)) {
+            terms.merge(token, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 从磁盘加载快照并重放日志，重建倒排表；文件损坏时从已读到的部分开始（由启动补建恢复）
+     */
+    private void load() {
+        lock.writeLock().lock();
+        try {
+            loadSnapshot();
+            replayLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!documents.isEmpty()) {
+            logger.info("全文索引已加载：{}篇日记，{}个词项，日志记录{}条", documents.size(), postings.size(), logEntries);
+        }
+    }
+
+    private void loadSnapshot() {
+        Path path = indexPath();
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            Map<String, JsonNode> stored = objectMapper.readValue(path.toFile(),
+                new TypeReference<Map<String, JsonNode>>() {});
+            for (Map.Entry<String, JsonNode> document : stored.entrySet()) {
+                JsonNode value = document.getValue();
+                // 旧格式直接存词频且没有版本，版本记为0，启动补建时会重新索引
+                boolean versioned = value.path("terms").isObject();
+                long version = versioned ? value.path("version").asLong(0) : 0;
+                addDocument(LocalDate.parse(document.getKey()), readTerms(versioned ? value.get("terms") : value), version);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("加载全文索引失败，将重新建立：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按顺序重放日志；写了一半的记录（落盘时崩溃或写入失败）被跳过，其后的记录照常重放，
+     * 被跳过的日期由启动补建按版本重新索引
+     */
+    private void replayLog() {
+        Path path = logPath();
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode record;
+                LocalDate date;
+                try {
+                    record = objectMapper.readTree(line);
+                    date = LocalDate.parse(record.path("date").asText());
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("跳过全文索引日志中损坏的记录：{}", e.getMessage());
+                    continue;
+                }
+                removeDocument(date);
+                if (!record.path("removed").asBoolean(false)) {
+                    addDocument(date, readTerms(record.get("terms")), record.path("version").asLong(0));
+                }
+                logEntries++;
+            }
+        } catch (IOException e) {
+            logger.warn("读取全文索引日志失败：{}", e.getMessage());
+        }
+    }
+
+    private Map<String, Integer> readTerms(JsonNode node) {
+        Map<String, Integer> terms = new HashMap<>();
+        if (node != null) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                terms.put(field.getKey(), field.getValue().asInt());
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 把变化的日期追加到日志；日志记录数超过阈值时改为写入完整快照并清空日志。
+     * 文档的词频表加入索引后不再修改，持锁时只取引用，序列化在锁外进行
+     */
+    private synchronized void flush() {
+        Map<LocalDate, Map<String, Integer>> changes = new TreeMap<>();
+        Map<LocalDate, Long> changedVersions = new HashMap<>();
+        Map<LocalDate, Map<String, Integer>> allDocuments = null;
+        Map<LocalDate, Long> allVersions = null;
+        lock.writeLock().lock();
+        try {
+            if (changed.isEmpty()) {
+                return;
+            }
+            for (LocalDate date : changed) {
+                changes.put(date, documents.get(date));
+                changedVersions.put(date, versions.get(date));
+            }
+            changed.clear();
+            if (logEntries + changes.size() > Math.max(compactEntries, documents.size())) {
+                allDocuments = new TreeMap<>(documents);
+                allVersions = new HashMap<>(versions);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            Files.createDirectories(indexPath().getParent());
+            if (allDocuments != null) {
+                writeSnapshot(allDocuments, allVersions);
+            } else {
+                appendLog(changes, changedVersions);
+            }
+        } catch (IOException e) {
+            // 下次落盘时重试这些日期
+            lock.writeLock().lock();
+            try {
+                changed.addAll(changes.keySet());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error("保存全文索引失败", e);
+        }
+    }
+
+    private void appendLog(Map<LocalDate, Map<String, Integer>> changes, Map<LocalDate, Long> changedVersions)
+            throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<LocalDate, Map<String, Integer>> change : changes.entrySet()) {
+            ObjectNode record = objectMapper.createObjectNode();
+            record.put("date", change.getKey().toString());
+            if (change.getValue() == null) {
+                record.put("removed", true);
+            } else {
+                record.put("version", changedVersions.get(change.getKey()));
+                record.set("terms", objectMapper.valueToTree(change.getValue()));
+            }
+            lines.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+
+        try (FileChannel channel = FileChannel.open(logPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            // 上次崩溃留下的半条记录没有换行，先补上，避免新记录接在它后面一起损坏
+            String prefix = size > 0 && !endsWithNewline(channel, size) ? "\n" : "";
+            ByteBuffer buffer = ByteBuffer.wrap((prefix + lines).getBytes(StandardCharsets.UTF_8));
+            try {
+                long position = size;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                // 写入或fsync中途失败时截回原长度，不留下半条记录
+                channel.truncate(size);
+                throw e;
+            }
+        }
+        logEntries += changes.size();
+        appendedEntries.addAndGet(changes.size());
+    }
+
+    private static boolean endsWithNewline(FileChannel channel, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        return channel.read(last, size - 1) == 1 && last.get(0) == '\n';
+    }
+
+    /**
+     * 原子写入完整快照后删除日志；删除前崩溃时重放日志是幂等的
+     */
+    private void writeSnapshot(Map<LocalDate, Map<String, Integer>> allDocuments, Map<LocalDate, Long> allVersions)
+            throws IOException {
+        ObjectNode stored = objectMapper.createObjectNode();
+        for (Map.Entry<LocalDate, Map<String, Integer>> document : allDocuments.entrySet()) {
+            ObjectNode value = stored.putObject(document.getKey().toString());
+            value.put("version", allVersions.getOrDefault(document.getKey(), 0L));
+            value.set("terms", objectMapper.valueToTree(document.getValue()));
+        }
+        fileWriter.write(indexPath(), objectMapper.writeValueAsBytes(stored));
+        Files.deleteIfExists(logPath());
+        logEntries = 0;
+        snapshots.incrementAndGet();
+    }
+
+    private Path indexPath() {
+        return Paths.get(dataDirectory, INDEX_DIRECTORY, INDEX_FILE);
+    }
+
+    private Path logPath() {
+        return Paths.get(dataDirectory, INDEX_DIRECTORY, LOG_FILE);
+    }
+
+    /**
+     * 获取索引统计
+     * @return 文档数、词项数、日志记录数、追加的记录数和快照次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", documents.size());
+            stats.put("terms", postings.size());
+            stats.put("totalLength", totalLength);
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("appendedEntries", appendedEntries.get());
+        stats.put("snapshots", snapshots.get());
+        return stats;
+    }
+
+    /**
+     * 关闭前把未保存的更新写入磁盘
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.diary.persistence;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.diary.model.DiaryEntry;
+import com.example.diary.model.DiarySession;
+
+/**
+ * 日记会话读缓存
+ * 按访问顺序淘汰（LRU），同时限制缓存条目数和总权重（会话文本字符数），
+ * 缓存中的会话为共享实例，调用方不得修改
+ */
+@Component
+public class DiarySessionCache {
+
+    /**
+     * 最多缓存的会话数量
+     */
+    @Value("${diary.data.cache.max-entries:64}")
+    private int maxEntries;
+
+    /**
+     * 所有缓存会话的文本总字符数上限
+     */
+    @Value("${diary.data.cache.max-weight:2000000}")
+    private long maxWeight;
+
+    private final LinkedHashMap<LocalDate, CachedSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    /**
+     * 失效版本号，防止失效前开始的加载把旧数据写回缓存
+     */
+    private long invalidations;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 读穿透获取会话：命中时直接返回，未命中时调用loader并缓存结果
+     * @param date 日期
+     * @param loader 未命中时的加载函数，返回null表示不存在（不缓存）
+     * @return 日记会话
+     */
+    public DiarySession get(LocalDate date, Function<LocalDate, DiarySession> loader) {
+        long version;
+        synchronized (this) {
+            CachedSession cached = sessions.get(date);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.session;
+            }
+            version = invalidations;
+        }
+
+        misses.incrementAndGet();
+        // 在锁外加载，避免慢I/O阻塞其他日期的命中
+        DiarySession session = loader.apply(date);
+        if (session != null) {
+            put(date, session, version);
+        }
+        return session;
+    }
+
+    /**
+     * 查看已缓存的会话，不触发加载也不计入统计
+     * @param date 日期
+     * @return 已缓存的会话，未缓存时返回null
+     */
+    public synchronized DiarySession peek(LocalDate date) {
+        CachedSession cached = sessions.get(date);
+        return cached != null ? cached.session : null;
+    }
+
+    private synchronized void put(LocalDate date, DiarySession session, long version) {
+        long weight = weigh(session);
+        if (version != invalidations || weight > maxWeight) {
+            return;
+        }
+
+        CachedSession previous = sessions.put(date, new CachedSession(session, weight));
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        totalWeight += weight;
+
+        Iterator<Map.Entry<LocalDate, CachedSession>> iterator = sessions.entrySet().iterator();
+        while ((sessions.size() > maxEntries || totalWeight > maxWeight) && iterator.hasNext()) {
+            Map.Entry<LocalDate, CachedSession> eldest = iterator.next();
+            if (eldest.getKey().equals(date)) {
+                continue;
+            }
+            totalWeight -= eldest.getValue().weight;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 使指定日期的缓存失效（保存后调用）
+     * @param date 日期
+     */
+    public synchronized void invalidate(LocalDate date) {
+        invalidations++;
+        CachedSession removed = sessions.remove(date);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     * @return 命中、未命中、淘汰次数及当前容量
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("size", sessions.size());
+        stats.put("weight", totalWeight);
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxWeight", maxWeight);
+        return stats;
+    }
+
+    /**
+     * 估算会话权重：所有文本内容的字符数
+     */
+    private static long weigh(DiarySession session) {
+        long weight = length(session.getGeneratedDiary()) + length(session.getSummary()) + length(session.getInsights());
+        for (DiaryEntry entry : session.getEntries()) {
+            weight += length(entry.getContent());
+        }
+        return weight;
+    }
+
+    private static long length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    private record CachedSession(DiarySession session, long weight) {
+    }
+}
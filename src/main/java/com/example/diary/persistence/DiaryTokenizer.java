@@ -0,0 +1,100 @@
+package com.example.diary.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日记分词器
+ * 中日韩文字按单字和相邻二元组切分（中文没有空格分词，二元组兼顾召回与精度），
+ * 字母和数字按连续片段切分并转为小写，其余字符作为分隔符
+ */
+public final class DiaryTokenizer {
+
+    private DiaryTokenizer() {
+    }
+
+    /**
+     * 切分文本
+     * @param text 文本
+     * @return 词项列表（允许重复，用于统计词频）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                tokens.add(new String(Character.toChars(codePoint)));
+                if (previousCjk >= 0) {
+                    tokens.add(new String(Character.toChars(previousCjk)) + new String(Character.toChars(codePoint)));
+                }
+                previousCjk = codePoint;
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                previousCjk = -1;
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+            } else {
+                previousCjk = -1;
+                flushWord(word, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    /**
+     * 切分查询：连续两个以上汉字时只使用二元组，单个汉字使用单字
+     * @param query 查询文本
+     * @return 去重后的查询词项
+     */
+    public static List<String> tokenizeQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(query)) {
+            boolean singleCjk = token.codePointCount(0, token.length()) == 1 && isCjk(token.codePointAt(0));
+            if (singleCjk && isInsideCjkRun(query, token)) {
+                continue;
+            }
+            if (!terms.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isInsideCjkRun(String query, String character) {
+        int index = query.indexOf(character);
+        while (index >= 0) {
+            boolean before = index > 0 && isCjk(query.codePointBefore(index));
+            int end = index + character.length();
+            boolean after = end < query.length() && isCjk(query.codePointAt(end));
+            if (!before && !after) {
+                return false;
+            }
+            index = query.indexOf(character, index + 1);
+        }
+        return true;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
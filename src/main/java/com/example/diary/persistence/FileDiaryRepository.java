@@ -1,21 +1,47 @@
 package com.example.diary.persistence;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import com.example.diary.model.DiaryEntry;
 import com.example.diary.model.DiarySession;
+import com.example.diary.model.DiarySummary;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 /**
  * 文件日记存储库
@@ -26,21 +52,74 @@ public class FileDiaryRepository {
     
     private static final Logger logger = LoggerFactory.getLogger(FileDiaryRepository.class);
     
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
     /**
      * 数据存储目录
      */
     @Value("${diary.data.directory:./data}")
     private String dataDirectory;
     
-    private final ObjectMapper objectMapper;
+    /**
+     * 范围加载时并行解析的线程数
+     */
+    @Value("${diary.data.range.parallelism:4}")
+    private int rangeParallelism;
+    
+    /**
+     * 流式范围加载时最多提前解析的天数
+     */
+    @Value("${diary.data.range.prefetch:8}")
+    private int rangePrefetch;
+    
+    private final DiaryCodecs codecs;
+    
+    private final SessionJournal sessionJournal;
+    
+    private final DiaryDateIndex dateIndex;
+    
+    private final DiarySessionCache sessionCache;
+    
+    private final ArchiveSegmentStore archiveStore;
+    
+    private final AtomicFileWriter fileWriter;
+    
+    private final WriteBehindQueue writeBehindQueue;
+    
+    private final DiarySearchIndex searchIndex;
+    
+    private ExecutorService rangeExecutor;
+    
+    /**
+     * 每个日期一把写锁：保存与格式迁移的"读取-重写"互斥，迁移不会用旧内容覆盖期间保存的新内容
+     */
+    private final Map<LocalDate, Object> dateLocks = new ConcurrentHashMap<>();
     
     /**
      * 构造函数
      */
-    public FileDiaryRepository() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        this.objectMapper.findAndRegisterModules();
+    public FileDiaryRepository(DiaryCodecs codecs, SessionJournal sessionJournal,
+                               DiaryDateIndex dateIndex, DiarySessionCache sessionCache,
+                               ArchiveSegmentStore archiveStore, AtomicFileWriter fileWriter,
+                               WriteBehindQueue writeBehindQueue, DiarySearchIndex searchIndex) {
+        this.codecs = codecs;
+        this.sessionJournal = sessionJournal;
+        this.dateIndex = dateIndex;
+        this.sessionCache = sessionCache;
+        this.archiveStore = archiveStore;
+        this.fileWriter = fileWriter;
+        this.writeBehindQueue = writeBehindQueue;
+        this.searchIndex = searchIndex;
+    }
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        rangeExecutor = Executors.newFixedThreadPool(rangeParallelism, r -> {
+            Thread thread = new Thread(r, "diary-range-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
     /**
@@ -52,12 +131,27 @@ public class FileDiaryRepository {
             // 确保数据目录存在
             ensureDataDirectoryExists();
             
-            // 生成文件名：diary_yyyy-MM-dd.json
-            String fileName = "diary_" + session.getDate().format(DateTimeFormatter.ISO_DATE) + ".json";
-            File file = new File(dataDirectory, fileName);
+            // 生成文件名：diary_yyyy-MM-dd.json（或当前存储格式的扩展名）
+            DiaryCodec codec = codecs.getWriteCodec();
+            String fileName = "diary_" + session.getDate().format(DateTimeFormatter.ISO_DATE) + codec.getExtension();
+            Path path = Paths.get(dataDirectory, fileName);
             
-            // 写入JSON文件
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, session);
+            // 按当前存储格式原子写入（临时文件 + fsync + 重命名），与归档任务互斥
+            byte[] data = codec.encode(session);
+            synchronized (dateLock(session.getDate())) {
+                long version;
+                archiveStore.getCompactionLock().readLock().lock();
+                try {
+                    fileWriter.write(path, data);
+                    version = fileVersion(path);
+                    dateIndex.put(session.getDate(), path);
+                    sessionCache.invalidate(session.getDate());
+                    deleteOtherFormats(session.getDate(), path);
+                } finally {
+                    archiveStore.getCompactionLock().readLock().unlock();
+                }
+                searchIndex.index(session, version);
+            }
             
             logger.info("日记会话已保存：{}，包含{}条记录", fileName, session.getEntryCount());
             
@@ -68,21 +162,108 @@ public class FileDiaryRepository {
     }
     
     /**
-     * 根据日期加载日记会话
+     * 为新开始的会话创建追加日志
+     * @param session 日记会话
+     */
+    public void startJournal(DiarySession session) {
+        sessionJournal.begin(session);
+    }
+    
+    /**
+     * 将一条日记条目追加到会话日志（O(1) I/O，不重写整个会话）
+     * @param session 日记会话
+     * @param entry 新增的日记条目
+     */
+    public void appendEntry(DiarySession session, DiaryEntry entry) {
+        sessionJournal.append(session, entry);
+    }
+    
+    /**
+     * 结束会话：保存为 diary_yyyy-MM-dd.json 后删除对应的追加日志
+     * @param session 已结束的日记会话
+     */
+    public void finalizeSession(DiarySession session) {
+        saveSession(session);
+        sessionJournal.discard(session);
+    }
+    
+    /**
+     * 异步结束会话：先在会话日志中落盘结束记录（含生成的内容），再由写后队列完成保存和日志删除；
+     * 写入完成前通过本存储库读取该日期会得到这里提交的会话，
+     * 保存失败或进程提前退出时，重启后按结束记录压实会话而不是重新打开记录
+     * @param session 已结束的日记会话
+     */
+    public void finalizeSessionAsync(DiarySession session) {
+        sessionJournal.seal(session);
+        writeBehindQueue.submit(session, () -> finalizeSession(session));
+    }
+    
+    /**
+     * 应用关闭前等待异步写入全部落盘
+     */
+    @PreDestroy
+    public void flushPendingWrites() {
+        writeBehindQueue.flush();
+        rangeExecutor.shutdownNow();
+    }
+    
+    /**
+     * 放弃会话日志（会话没有任何内容时）
+     * @param session 日记会话
+     */
+    public void discardJournal(DiarySession session) {
+        sessionJournal.discard(session);
+    }
+    
+    /**
+     * 关闭会话日志但保留文件（结束会话出错时，日志留待重启后恢复）
+     * @param session 日记会话
+     */
+    public void closeJournal(DiarySession session) {
+        sessionJournal.close(session);
+    }
+    
+    /**
+     * 重放磁盘上所有未结束的会话
+     * @return 未结束的会话列表（按开始时间升序）
+     */
+    public List<DiarySession> recoverUnfinishedSessions() {
+        return sessionJournal.recover();
+    }
+    
+    /**
+     * 重新打开恢复出的会话日志，继续追加条目
+     * @param session 恢复出的会话
+     */
+    public void resumeJournal(DiarySession session) {
+        sessionJournal.reopen(session);
+    }
+    
+    /**
+     * 根据日期加载日记会话（经过读缓存，返回的会话为共享实例，不得修改）
      * @param date 日期
      * @return 日记会话，如果不存在则返回null
      */
     public DiarySession loadSession(LocalDate date) {
+        DiarySession pending = writeBehindQueue.getPending(date);
+        if (pending != null) {
+            return pending;
+        }
+        return sessionCache.get(date, this::readSession);
+    }
+    
+    /**
+     * 从磁盘读取并解析日记会话
+     */
+    private DiarySession readSession(LocalDate date) {
         try {
-            String fileName = "diary_" + date.format(DateTimeFormatter.ISO_DATE) + ".json";
-            File file = new File(dataDirectory, fileName);
-            
-            if (!file.exists()) {
+            byte[] data = readRaw(date);
+            if (data == null) {
                 return null;
             }
             
-            DiarySession session = objectMapper.readValue(file, DiarySession.class);
-            logger.info("日记会话已加载：{}，包含{}条记录", fileName, session.getEntryCount());
+            DiarySession session = codecs.detect(data).decode(data);
+            logger.info("日记会话已加载：{}，包含{}条记录", date, session.getEntryCount());
             
             return session;
             
@@ -92,15 +273,387 @@ public class FileDiaryRepository {
         }
     }
     
+    /**
+     * 加载日期范围内的所有日记会话，解析在线程池中并行进行
+     * 范围加载不写入读缓存，避免冲掉常用日期
+     * @param from 起始日期（含）
+     * @param to 结束日期（含）
+     * @return 按日期升序排列的会话
+     */
+    public List<DiarySession> loadSessions(LocalDate from, LocalDate to) {
+        List<CompletableFuture<DiarySession>> futures = new ArrayList<>();
+        for (LocalDate date : rangeDates(from, to)) {
+            futures.add(loadAsync(date));
+        }
+        
+        List<DiarySession> sessions = new ArrayList<>(futures.size());
+        for (CompletableFuture<DiarySession> future : futures) {
+            DiarySession session = future.join();
+            if (session != null) {
+                sessions.add(session);
+            }
+        }
+        return sessions;
+    }
+    
+    /**
+     * 流式加载日期范围内的日记会话
+     * 按日期顺序产出，最多提前并行解析 diary.data.range.prefetch 天，内存占用与范围大小无关；
+     * 使用完毕后应关闭流以取消尚未消费的解析任务
+     * @param from 起始日期（含）
+     * @param to 结束日期（含）
+     * @return 按日期升序排列的会话流
+     */
+    public Stream<DiarySession> streamSessions(LocalDate from, LocalDate to) {
+        Iterator<LocalDate> dates = rangeDates(from, to).iterator();
+        Deque<CompletableFuture<DiarySession>> window = new ArrayDeque<>();
+        
+        Iterator<DiarySession> iterator = new Iterator<>() {
+            private DiarySession next;
+            
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    while (window.size() < rangePrefetch && dates.hasNext()) {
+                        window.addLast(loadAsync(dates.next()));
+                    }
+                    if (window.isEmpty()) {
+                        return false;
+                    }
+                    next = window.removeFirst().join();
+                }
+                return true;
+            }
+            
+            @Override
+            public DiarySession next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                DiarySession session = next;
+                next = null;
+                return session;
+            }
+        };
+        
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(() -> window.forEach(future -> future.cancel(false)));
+    }
+    
+    /**
+     * 范围内有日记的日期：已落盘的加上尚在写后队列中的
+     */
+    private NavigableSet<LocalDate> rangeDates(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("起始日期不能晚于结束日期");
+        }
+        NavigableSet<LocalDate> dates = new TreeSet<>(dateIndex.dates().subSet(from, true, to, true));
+        for (LocalDate pending : writeBehindQueue.getPendingDates()) {
+            if (!pending.isBefore(from) && !pending.isAfter(to)) {
+                dates.add(pending);
+            }
+        }
+        return dates;
+    }
+    
+    private CompletableFuture<DiarySession> loadAsync(LocalDate date) {
+        DiarySession inMemory = peekInMemory(date);
+        if (inMemory != null) {
+            return CompletableFuture.completedFuture(inMemory);
+        }
+        return CompletableFuture.supplyAsync(() -> readSession(date), rangeExecutor);
+    }
+    
+    /**
+     * 读取某一天的原始记录字节
+     * @return 记录字节，不存在时返回null
+     */
+    private byte[] readRaw(LocalDate date) throws IOException {
+        Path path = dateIndex.pathOf(date);
+        if (path == null) {
+            return null;
+        }
+        // 早期日记位于月度归档段中，通过映射内存读取
+        return archiveStore.isSegment(path) ? archiveStore.read(date) : Files.readAllBytes(path);
+    }
+    
+    /**
+     * 加载日记摘要：流式解析，跳过条目列表，不构建DiaryEntry对象
+     * @param date 日期
+     * @return 日记摘要，如果不存在则返回null
+     */
+    public DiarySummary loadSummary(LocalDate date) {
+        DiarySession cached = peekInMemory(date);
+        if (cached != null) {
+            return DiarySummary.of(cached);
+        }
+        
+        try {
+            byte[] data = readRaw(date);
+            if (data == null) {
+                return null;
+            }
+            
+            DiarySummary summary = new DiarySummary();
+            try (JsonParser parser = codecs.detect(data).getObjectMapper().createParser(data)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("日记文件格式错误");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "date" -> summary.setDate(LocalDate.parse(parser.getText()));
+                        case "startTime" -> summary.setStartTime(parseTimestamp(parser));
+                        case "endTime" -> summary.setEndTime(parseTimestamp(parser));
+                        case "generatedDiary" -> summary.setGeneratedDiary(parser.getValueAsString());
+                        case "summary" -> summary.setSummary(parser.getValueAsString());
+                        case "insights" -> summary.setInsights(parser.getValueAsString());
+                        case "entries" -> summary.setEntryCount(countArrayElements(parser, value));
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            return summary;
+            
+        } catch (IOException e) {
+            logger.error("加载日记摘要失败", e);
+            throw new RuntimeException("加载日记摘要失败：" + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 分页加载日记条目：流式解析，只反序列化请求范围内的条目
+     * @param date 日期
+     * @param offset 起始位置
+     * @param limit 最多返回的条目数
+     * @return 日记条目，日记不存在时返回空列表
+     */
+    public List<DiaryEntry> loadEntries(LocalDate date, int offset, int limit) {
+        DiarySession cached = peekInMemory(date);
+        if (cached != null) {
+            List<DiaryEntry> entries = cached.getEntries();
+            int from = Math.min(Math.max(offset, 0), entries.size());
+            return new ArrayList<>(entries.subList(from, Math.min(from + Math.max(limit, 0), entries.size())));
+        }
+        
+        List<DiaryEntry> entries = new ArrayList<>();
+        try {
+            byte[] data = readRaw(date);
+            if (data == null) {
+                return entries;
+            }
+            
+            ObjectMapper mapper = codecs.detect(data).getObjectMapper();
+            try (JsonParser parser = mapper.createParser(data)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("日记文件格式错误");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (!"entries".equals(field) || value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    int index = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT && entries.size() < limit) {
+                        if (index++ < offset) {
+                            parser.skipChildren();
+                        } else {
+                            entries.add(mapper.readValue(parser, DiaryEntry.class));
+                        }
+                    }
+                    // 已取够所需条目，不再解析文件剩余部分
+                    break;
+                }
+            }
+            return entries;
+            
+        } catch (IOException e) {
+            logger.error("加载日记条目失败", e);
+            throw new RuntimeException("加载日记条目失败：" + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 内存中已有的会话：待写入的优先，其次是读缓存
+     */
+    private DiarySession peekInMemory(LocalDate date) {
+        DiarySession pending = writeBehindQueue.getPending(date);
+        return pending != null ? pending : sessionCache.peek(date);
+    }
+    
+    private static LocalDateTime parseTimestamp(JsonParser parser) throws IOException {
+        String text = parser.getValueAsString();
+        return text != null ? LocalDateTime.parse(text, TIMESTAMP_FORMATTER) : null;
+    }
+    
+    /**
+     * 统计数组元素个数，逐个跳过而不构建对象
+     */
+    private static int countArrayElements(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * 以当前存储格式重写指定日期的日记（格式迁移使用）
+     * 扩展名不同的旧格式文件，以及扩展名相同但编码不同的文件（如缩进的JSON）都会被重写。
+     * 读取和重写都在该日期的写锁内进行，与用户保存互斥；有待写入的新内容时跳过，由写入本身完成迁移
+     * @param date 日期
+     * @return 是否发生了重写
+     */
+    public boolean rewriteInWriteFormat(LocalDate date) throws IOException {
+        synchronized (dateLock(date)) {
+            if (writeBehindQueue.getPending(date) != null) {
+                return false;
+            }
+            Path path = dateIndex.pathOf(date);
+            // 归档段中的记录保留原格式，读取时按记录头识别
+            if (path == null || archiveStore.isSegment(path)) {
+                return false;
+            }
+            DiaryCodec writeCodec = codecs.getWriteCodec();
+            if (path.getFileName().toString().endsWith(writeCodec.getExtension())
+                    && writeCodec.isCurrentEncoding(readHeader(path))) {
+                return false;
+            }
+            DiarySession session = readSession(date);
+            if (session == null) {
+                return false;
+            }
+            saveSession(session);
+            return true;
+        }
+    }
+    
+    private Object dateLock(LocalDate date) {
+        return dateLocks.computeIfAbsent(date, key -> new Object());
+    }
+    
+    /**
+     * 读取文件开头的若干字节，用于判断编码
+     */
+    private static byte[] readHeader(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(16);
+        }
+    }
+    
+    /**
+     * 删除同一天其他格式的旧文件
+     */
+    private void deleteOtherFormats(LocalDate date, Path current) throws IOException {
+        String baseName = "diary_" + date.format(DateTimeFormatter.ISO_DATE);
+        for (String extension : codecs.getExtensions()) {
+            Path other = Paths.get(dataDirectory, baseName + extension);
+            if (!other.equals(current)) {
+                Files.deleteIfExists(other);
+            }
+        }
+    }
+    
     /**
      * 检查指定日期的日记是否存在
      * @param date 日期
      * @return 是否存在
      */
     public boolean sessionExists(LocalDate date) {
-        String fileName = "diary_" + date.format(DateTimeFormatter.ISO_DATE) + ".json";
-        File file = new File(dataDirectory, fileName);
-        return file.exists();
+        return dateIndex.contains(date) || writeBehindQueue.getPending(date) != null;
+    }
+    
+    /**
+     * 获取所有有日记的日期（包括尚在写后队列中的）
+     * @return 升序排列的日期
+     */
+    public NavigableSet<LocalDate> listSessionDates() {
+        NavigableSet<LocalDate> dates = new TreeSet<>(dateIndex.dates());
+        dates.addAll(writeBehindQueue.getPendingDates());
+        return dates;
+    }
+    
+    /**
+     * 获取指定月份中有日记的日期（包括尚在写后队列中的）
+     * @param month 月份
+     * @return 升序排列的日期
+     */
+    public NavigableSet<LocalDate> listSessionDates(YearMonth month) {
+        NavigableSet<LocalDate> dates = new TreeSet<>(dateIndex.datesIn(month));
+        for (LocalDate pending : writeBehindQueue.getPendingDates()) {
+            if (YearMonth.from(pending).equals(month)) {
+                dates.add(pending);
+            }
+        }
+        return dates;
+    }
+    
+    /**
+     * 全文检索日记
+     * @param query 查询文本
+     * @param limit 最多返回的结果数
+     * @return 按相关度降序排列的日期与得分
+     */
+    public List<Map.Entry<LocalDate, Double>> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+    
+    /**
+     * 使全文索引与磁盘上的日记一致：补建缺失的日期，重建版本（文件修改时间）与索引不一致的日期，
+     * 移除已不存在的日期
+     * @return 补建或重建的日记数
+     */
+    public int reconcileSearchIndex() {
+        Map<LocalDate, Long> indexed = searchIndex.indexedVersions();
+        for (LocalDate date : indexed.keySet()) {
+            if (!dateIndex.contains(date)) {
+                searchIndex.remove(date);
+            }
+        }
+        
+        int added = 0;
+        for (LocalDate date : new ArrayList<>(dateIndex.dates())) {
+            Path path = dateIndex.pathOf(date);
+            if (path == null) {
+                continue;
+            }
+            long version = fileVersion(path);
+            Long indexedVersion = indexed.get(date);
+            if (indexedVersion != null && indexedVersion == version) {
+                continue;
+            }
+            try {
+                DiarySession session = readSession(date);
+                if (session != null && searchIndex.indexIfUnchanged(session, version, indexedVersion)) {
+                    added++;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("补建全文索引失败：{}，{}", date, e.getMessage());
+            }
+        }
+        return added;
+    }
+    
+    /**
+     * 日记文件的版本，用于判断全文索引是否过期（归档段中的日记取段文件的修改时间）
+     * @param path 日记文件
+     * @return 修改时间（毫秒），无法读取时返回-1（视为过期）
+     */
+    private static long fileVersion(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
     }
     
     /**
@@ -119,6 +672,46 @@ public class FileDiaryRepository {
         }
     }
     
+    /**
+     * 获取会话读缓存统计
+     * @return 命中、未命中、淘汰次数等
+     */
+    public Map<String, Object> getCacheStats() {
+        return sessionCache.getStats();
+    }
+    
+    /**
+     * 获取归档段统计
+     * @return 段数量、已归档天数
+     */
+    public Map<String, Object> getArchiveStats() {
+        return archiveStore.getStats();
+    }
+    
+    /**
+     * 获取文件写入统计
+     * @return 写入文件数、fsync轮数
+     */
+    public Map<String, Object> getWriteStats() {
+        return fileWriter.getStats();
+    }
+    
+    /**
+     * 获取异步写入队列统计
+     * @return 队列深度、完成数、失败数
+     */
+    public Map<String, Object> getWriteBehindStats() {
+        return writeBehindQueue.getStats();
+    }
+    
+    /**
+     * 获取全文索引统计
+     * @return 文档数、词项数
+     */
+    public Map<String, Object> getSearchStats() {
+        return searchIndex.getStats();
+    }
+    
     /**
      * 获取数据目录路径
      * @return 数据目录路径
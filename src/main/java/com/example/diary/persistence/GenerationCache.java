@@ -0,0 +1,242 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 模型生成结果缓存
+ * 以 (模型, 提示词, 生成参数) 的SHA-256为键，把生成结果保存为 cache/&lt;hash&gt;.txt；
+ * 相同输入的重复生成直接读取磁盘。按最近访问顺序淘汰，总字节数不超过上限。
+ */
+@Component
+public class GenerationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationCache.class);
+
+    private static final String CACHE_DIRECTORY = "cache";
+    private static final String FILE_SUFFIX = ".txt";
+
+    /**
+     * 数据存储目录
+     */
+    @Value("${diary.data.directory:./data}")
+    private String dataDirectory;
+
+    /**
+     * 是否启用生成缓存
+     */
+    @Value("${ollama.cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 缓存文件总字节数上限
+     */
+    @Value("${ollama.cache.max-bytes:52428800}")
+    private long maxBytes;
+
+    private final AtomicFileWriter fileWriter;
+
+    /**
+     * 键 -> 文件字节数，按访问顺序排列
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public GenerationCache(AtomicFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
+    }
+
+    /**
+     * 启动时按最后访问时间恢复淘汰顺序
+     */
+    @PostConstruct
+    public void init() {
+        Path directory = cacheDirectory();
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            logger.warn("扫描生成缓存失败：{}", e.getMessage());
+            return;
+        }
+
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        synchronized (this) {
+            for (Path file : files) {
+                try {
+                    String name = file.getFileName().toString();
+                    long size = Files.size(file);
+                    entries.put(name.substring(0, name.length() - FILE_SUFFIX.length()), size);
+                    totalBytes += size;
+                } catch (IOException e) {
+                    logger.debug("读取缓存文件大小失败：{}", file);
+                }
+            }
+            evictIfNeeded();
+        }
+        logger.info("生成缓存已加载：{}项，{}字节", entries.size(), totalBytes);
+    }
+
+    /**
+     * 计算缓存键
+     * @param model 模型名称
+     * @param prompt 提示词
+     * @param options 影响生成结果的参数（序列化后的文本，没有时传空字符串）
+     * @return 十六进制SHA-256
+     */
+    public static String key(String model, String prompt, String options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(options.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 读取缓存的生成结果
+     * @param key 缓存键
+     * @return 生成结果，未命中时返回null
+     */
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        Path path = pathOf(key);
+        try {
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            // 更新修改时间，重启后仍能恢复最近访问顺序
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return content;
+        } catch (IOException e) {
+            // 文件被外部删除或损坏，视为未命中
+            synchronized (this) {
+                Long size = entries.remove(key);
+                totalBytes -= size != null ? size : 0;
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * 保存生成结果，写入失败只记录日志，不影响调用方
+     * @param key 缓存键
+     * @param content 生成结果
+     */
+    public void put(String key, String content) {
+        if (!enabled || content == null || content.isEmpty()) {
+            return;
+        }
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        if (data.length > maxBytes) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(cacheDirectory());
+            fileWriter.write(pathOf(key), data);
+        } catch (IOException e) {
+            logger.warn("保存生成缓存失败：{}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = entries.put(key, (long) data.length);
+            totalBytes += data.length - (previous != null ? previous : 0);
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * 超过字节上限时删除最久未访问的缓存文件（调用方持有锁）
+     */
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(pathOf(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warn("删除生成缓存失败：{}", eldest.getKey());
+            }
+        }
+    }
+
+    private Path cacheDirectory() {
+        return Paths.get(dataDirectory, CACHE_DIRECTORY);
+    }
+
+    private Path pathOf(String key) {
+        return cacheDirectory().resolve(key + FILE_SUFFIX);
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * 获取缓存统计
+     * @return 命中、未命中、淘汰次数和占用字节数
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("entries", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+
+import com.example.diary.model.DiarySession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * JSON日记格式（diary_yyyy-MM-dd.json）
+ */
+public class JsonDiaryCodec implements DiaryCodec {
+    
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final boolean prettyPrint;
+    
+    /**
+     * 构造函数
+     * @param prettyPrint 是否缩进输出
+     */
+    public JsonDiaryCodec(boolean prettyPrint) {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.findAndRegisterModules();
+        this.objectMapper.addMixIn(DiarySession.class, StorageMixin.class);
+        this.prettyPrint = prettyPrint;
+        this.writer = prettyPrint ? objectMapper.writerWithDefaultPrettyPrinter() : objectMapper.writer();
+    }
+    
+    @Override
+    public String getName() {
+        return "json";
+    }
+    
+    @Override
+    public String getExtension() {
+        return ".json";
+    }
+    
+    @Override
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+    
+    @Override
+    public boolean matches(byte[] header) {
+        // JSON文件以空白或 '{' 开头
+        for (byte b : header) {
+            if (b == '{') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean isCurrentEncoding(byte[] header) {
+        if (prettyPrint) {
+            return true;
+        }
+        // 紧凑输出不含换行（字符串中的换行会被转义），缩进输出在 '{' 之后立即换行
+        for (byte b : header) {
+            if (b == '\n' || b == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public byte[] encode(DiarySession session) throws IOException {
+        return writer.writeValueAsBytes(session);
+    }
+}
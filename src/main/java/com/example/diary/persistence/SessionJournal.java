@@ -0,0 +1,395 @@
+package com.example.diary.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.diary.model.DiaryEntry;
+import com.example.diary.model.DiarySession;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 会话追加日志
+ * 记录阶段每条日记条目以一行JSON追加到 journal/journal_yyyy-MM-dd_HHmmss_SSS.log（按会话开始时间命名，
+ * 同一毫秒内开始的会话追加序号，不会截断其他会话的日志），
+ * 由后台线程按固定间隔批量fsync，进程崩溃后可通过重放日志恢复未结束的会话
+ */
+@Component
+public class SessionJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionJournal.class);
+
+    private static final String JOURNAL_DIRECTORY = "journal";
+    private static final String FILE_PREFIX = "journal_";
+    private static final String FILE_SUFFIX = ".log";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss_SSS");
+
+    /**
+     * 数据存储目录
+     */
+    @Value("${diary.data.directory:./data}")
+    private String dataDirectory;
+
+    /**
+     * 批量fsync的间隔（毫秒）
+     */
+    @Value("${diary.journal.sync-interval-ms:200}")
+    private long syncIntervalMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 已打开的日志通道（按日志文件）
+     */
+    private final Map<Path, JournalChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 会话 -> 日志文件（按会话对象区分，开始时间相同的会话也各有各的文件）
+     */
+    private final Map<DiarySession, Path> paths = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    public void init() {
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "diary-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::syncAll, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为新会话创建日志
+     * @param session 刚开始的日记会话
+     */
+    public void begin(DiarySession session) {
+        try {
+            Path directory = Paths.get(dataDirectory, JOURNAL_DIRECTORY);
+            Files.createDirectories(directory);
+            String baseName = FILE_PREFIX + session.getStartTime().format(FILE_NAME_FORMATTER);
+            Path path;
+            FileChannel channel;
+            // 只创建新文件，已存在（同一毫秒内开始的会话）时追加序号，绝不截断其他会话的日志
+            for (int sequence = 0; ; sequence++) {
+                path = directory.resolve(baseName + (sequence > 0 ? "_" + sequence : "") + FILE_SUFFIX);
+                try {
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    logger.debug("会话日志已存在，换用新文件名：{}", path.getFileName());
+                }
+            }
+            paths.put(session, path);
+            JournalChannel journalChannel = new JournalChannel(channel);
+            channels.put(path, journalChannel);
+
+            ObjectNode header = objectMapper.createObjectNode();
+            header.put("type", "start");
+            header.put("date", session.getDate().format(DateTimeFormatter.ISO_DATE));
+            header.put("startTime", session.getStartTime().format(TIMESTAMP_FORMATTER));
+            journalChannel.append(toLine(header));
+            // 会话头立即落盘，保证重放时能识别会话
+            journalChannel.sync();
+
+        } catch (IOException e) {
+            logger.error("创建会话日志失败", e);
+            throw new RuntimeException("创建会话日志失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 追加一条日记条目，fsync由后台线程批量完成
+     * @param session 日记会话
+     * @param entry 日记条目
+     */
+    public void append(DiarySession session, DiaryEntry entry) {
+        JournalChannel journalChannel = channels.get(journalPath(session));
+        if (journalChannel == null) {
+            logger.warn("会话日志未打开，忽略条目：{}", session.getDate());
+            return;
+        }
+
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("type", "entry");
+        line.put("timestamp", entry.getTimestamp().format(TIMESTAMP_FORMATTER));
+        line.put("content", entry.getContent());
+
+        try {
+            journalChannel.append(toLine(line));
+        } catch (IOException e) {
+            logger.error("写入会话日志失败", e);
+            throw new RuntimeException("写入会话日志失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 记录会话已结束及生成的内容并立即落盘，随后关闭日志通道（文件保留到日记文件写入成功后删除）。
+     * 异步保存失败或进程在保存前退出时，重放得到的是已结束的会话，可直接压实而不会重新打开记录
+     * @param session 已结束并生成了总结的会话
+     */
+    public void seal(DiarySession session) {
+        Path path = journalPath(session);
+        JournalChannel journalChannel = channels.get(path);
+        try {
+            if (journalChannel == null) {
+                // 恢复后未重新打开的日志（例如启动时压实历史会话），以追加方式写入
+                journalChannel = new JournalChannel(
+                    FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+                channels.put(path, journalChannel);
+            }
+
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("type", "end");
+            if (session.getEndTime() != null) {
+                line.put("endTime", session.getEndTime().format(TIMESTAMP_FORMATTER));
+            }
+            line.put("generatedDiary", session.getGeneratedDiary());
+            line.put("summary", session.getSummary());
+            line.put("insights", session.getInsights());
+            journalChannel.append(toLine(line));
+            journalChannel.sync();
+        } catch (IOException e) {
+            logger.error("写入会话结束记录失败", e);
+            throw new RuntimeException("写入会话结束记录失败：" + e.getMessage(), e);
+        } finally {
+            closeChannel(path);
+        }
+    }
+
+    /**
+     * 关闭会话日志的通道但保留文件（会话异常结束时，日志留待重启后恢复）
+     * @param session 日记会话
+     */
+    public void close(DiarySession session) {
+        closeChannel(journalPath(session));
+        paths.remove(session);
+    }
+
+    /**
+     * 删除会话的日志（会话已压实到日记文件或被放弃）
+     * 日志按会话区分，异步保存完成后删除旧会话日志不会影响同一天新开始的会话
+     * @param session 日记会话
+     */
+    public void discard(DiarySession session) {
+        Path path = journalPath(session);
+        closeChannel(path);
+        paths.remove(session);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除会话日志失败：{}", path.getFileName(), e);
+        }
+    }
+
+    /**
+     * 重放磁盘上所有未结束的会话日志
+     * @return 恢复出的会话列表（按开始时间升序）；已写入结束记录的会话为非活跃状态并带有生成的内容
+     */
+    public List<DiarySession> recover() {
+        List<DiarySession> sessions = new ArrayList<>();
+        Path directory = Paths.get(dataDirectory, JOURNAL_DIRECTORY);
+        if (!Files.isDirectory(directory)) {
+            return sessions;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                DiarySession session = replay(path);
+                if (session != null) {
+                    sessions.add(session);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("扫描会话日志失败", e);
+        }
+
+        sessions.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+        return sessions;
+    }
+
+    /**
+     * 重放单个日志文件，末尾被截断的行会被跳过
+     */
+    private DiarySession replay(Path path) {
+        DiarySession session = null;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    logger.warn("跳过损坏的日志行：{}", path.getFileName());
+                    continue;
+                }
+
+                String type = node.path("type").asText();
+                if ("start".equals(type)) {
+                    session = new DiarySession();
+                    session.setDate(LocalDate.parse(node.path("date").asText()));
+                    session.setStartTime(LocalDateTime.parse(node.path("startTime").asText(), TIMESTAMP_FORMATTER));
+                    session.setActive(true);
+                } else if ("entry".equals(type) && session != null) {
+                    session.getEntries().add(new DiaryEntry(
+                        LocalDateTime.parse(node.path("timestamp").asText(), TIMESTAMP_FORMATTER),
+                        node.path("content").asText()));
+                } else if ("end".equals(type) && session != null) {
+                    session.setActive(false);
+                    if (node.hasNonNull("endTime")) {
+                        session.setEndTime(LocalDateTime.parse(node.path("endTime").asText(), TIMESTAMP_FORMATTER));
+                    }
+                    session.setGeneratedDiary(node.path("generatedDiary").asText(null));
+                    session.setSummary(node.path("summary").asText(null));
+                    session.setInsights(node.path("insights").asText(null));
+                }
+            }
+        } catch (IOException | DateTimeParseException e) {
+            logger.error("重放会话日志失败：{}", path.getFileName(), e);
+            return null;
+        }
+
+        if (session != null) {
+            paths.put(session, path);
+            logger.info("已重放会话日志：{}，包含{}条记录", path.getFileName(), session.getEntryCount());
+        }
+        return session;
+    }
+
+    /**
+     * 重新打开已恢复会话的日志，以便继续追加
+     * @param session 恢复出的会话
+     */
+    public void reopen(DiarySession session) {
+        try {
+            Path path = journalPath(session);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            JournalChannel previous = channels.put(path, new JournalChannel(channel));
+            if (previous != null) {
+                previous.close();
+            }
+        } catch (IOException e) {
+            logger.error("重新打开会话日志失败", e);
+            throw new RuntimeException("重新打开会话日志失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 批量fsync所有有未落盘数据的日志
+     */
+    private void syncAll() {
+        for (JournalChannel journalChannel : channels.values()) {
+            try {
+                journalChannel.sync();
+            } catch (IOException e) {
+                logger.error("同步会话日志失败", e);
+            }
+        }
+    }
+
+    private void closeChannel(Path path) {
+        JournalChannel journalChannel = channels.remove(path);
+        if (journalChannel != null) {
+            journalChannel.close();
+        }
+    }
+
+    private byte[] toLine(ObjectNode node) throws IOException {
+        return (objectMapper.writeValueAsString(node) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 会话的日志文件：开始或重放时登记的文件，未登记时按开始时间推算
+     */
+    private Path journalPath(DiarySession session) {
+        Path path = paths.get(session);
+        return path != null ? path : Paths.get(dataDirectory, JOURNAL_DIRECTORY,
+            FILE_PREFIX + session.getStartTime().format(FILE_NAME_FORMATTER) + FILE_SUFFIX);
+    }
+
+    /**
+     * 关闭前把剩余数据落盘
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+        }
+        for (Path path : new ArrayList<>(channels.keySet())) {
+            closeChannel(path);
+        }
+    }
+
+    /**
+     * 单个日志文件通道，记录自上次fsync以来是否有新数据
+     */
+    private static final class JournalChannel {
+
+        private final FileChannel channel;
+        private boolean dirty;
+
+        JournalChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void append(byte[] line) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            dirty = true;
+        }
+
+        synchronized void sync() throws IOException {
+            if (dirty && channel.isOpen()) {
+                channel.force(false);
+                dirty = false;
+            }
+        }
+
+        synchronized void close() {
+            try {
+                sync();
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("关闭会话日志失败", e);
+            }
+        }
+    }
+}
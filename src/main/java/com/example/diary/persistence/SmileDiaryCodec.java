@@ -0,0 +1,67 @@
+package com.example.diary.persistence;
+
+import java.io.IOException;
+
+import com.example.diary.model.DiarySession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Smile二进制日记格式（diary_yyyy-MM-dd.smile）
+ * 与JSON数据模型一致，但字段名和重复字符串以引用方式存储，体积更小、解析更快
+ */
+public class SmileDiaryCodec implements DiaryCodec {
+    
+    /**
+     * Smile文件头 ":)\n"
+     */
+    private static final byte[] HEADER = {':', ')', '\n'};
+    
+    private final ObjectMapper objectMapper;
+    
+    public SmileDiaryCodec() {
+        SmileFactory factory = SmileFactory.builder()
+            .enable(SmileGenerator.Feature.WRITE_HEADER)
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build();
+        this.objectMapper = new ObjectMapper(factory);
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.findAndRegisterModules();
+        this.objectMapper.addMixIn(DiarySession.class, StorageMixin.class);
+    }
+    
+    @Override
+    public String getName() {
+        return "smile";
+    }
+    
+    @Override
+    public String getExtension() {
+        return ".smile";
+    }
+    
+    @Override
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+    
+    @Override
+    public boolean matches(byte[] header) {
+        if (header.length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (header[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public byte[] encode(DiarySession session) throws IOException {
+        return objectMapper.writeValueAsBytes(session);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.diary.persistence;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.diary.model.DiarySession;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 异步写后持久化队列
+ * 保存请求进入有界队列，由单个写线程按提交顺序执行（因此同一日期的写入保持有序）；
+ * 尚未落盘的会话保留在内存中，供存储库实现读己之写。
+ * 写入失败时按退避间隔重试；重试用尽后会话继续保留在内存中供读取，
+ * 会话日志里的结束记录保证重启后能直接压实该会话
+ */
+@Component
+public class WriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    /**
+     * 队列容量，队列满时提交方阻塞等待
+     */
+    @Value("${diary.data.write-behind.queue-capacity:64}")
+    private int queueCapacity;
+    
+    /**
+     * 单次写入的最多尝试次数
+     */
+    @Value("${diary.data.write-behind.max-attempts:3}")
+    private int maxAttempts;
+    
+    /**
+     * 首次重试前的等待时间（毫秒），之后每次加倍
+     */
+    @Value("${diary.data.write-behind.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    private BlockingQueue<WriteTask> queue;
+
+    /**
+     * 日期 -> 最近一次提交但尚未写完的会话
+     */
+    private final Map<LocalDate, DiarySession> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * 保护running与入队，保证flush()之后不会再有任务进入队列
+     */
+    private final Object lock = new Object();
+    
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::writeLoop, "diary-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 提交一次异步写入
+     * @param session 待写入的会话
+     * @param write 实际的写入操作
+     */
+    public void submit(DiarySession session, Runnable write) {
+        WriteTask task = new WriteTask(session, write);
+        synchronized (lock) {
+            if (running) {
+                pending.put(session.getDate(), session);
+                try {
+                    // 队列满时在锁内阻塞：写线程取任务不需要该锁，因此不会死锁
+                    queue.put(task);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        // 已关闭（应用退出中）或无法入队时退回同步写入，保证不丢数据
+        pending.put(session.getDate(), session);
+        execute(task);
+    }
+
+    /**
+     * 获取尚未落盘的会话
+     * @param date 日期
+     * @return 会话，没有待写入的会话时返回null
+     */
+    public DiarySession getPending(LocalDate date) {
+        return pending.get(date);
+    }
+
+    /**
+     * 获取所有尚未落盘的日期
+     * @return 日期集合
+     */
+    public Set<LocalDate> getPendingDates() {
+        return pending.keySet();
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteTask task = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    execute(task);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void execute(WriteTask task) {
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                task.write().run();
+                completed.incrementAndGet();
+                // 只移除本次写入的会话，期间若有更新的提交则继续保留
+                pending.remove(task.session().getDate(), task.session());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    // 会话继续保留在内存中供读取；会话日志带有结束记录，重启后直接压实
+                    failed.incrementAndGet();
+                    logger.error("异步保存日记会话失败，已重试{}次：{}", attempt - 1, task.session().getDate(), e);
+                    return;
+                }
+                retries.incrementAndGet();
+                logger.warn("异步保存日记会话失败，{}ms后重试：{}", backoffMs, task.session().getDate(), e);
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.incrementAndGet();
+                return;
+            }
+            backoffMs *= 2;
+        }
+    }
+
+    /**
+     * 等待队列中的写入全部完成并停止写线程
+     */
+    public void flush() {
+        synchronized (lock) {
+            running = false;
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WriteTask task;
+        while ((task = queue.poll()) != null) {
+            execute(task);
+        }
+        logger.info("异步写入队列已清空");
+    }
+
+    /**
+     * 获取队列统计
+     * @return 队列深度、完成数、重试次数、失败数（失败的会话仍计入pending）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("pending", pending.size());
+        stats.put("completed", completed.get());
+        stats.put("retries", retries.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private record WriteTask(DiarySession session, Runnable write) {
+    }
+}
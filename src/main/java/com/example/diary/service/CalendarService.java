@@ -1,26 +1,30 @@
 package com.example.diary.service;
 
+import com.example.diary.model.DiaryEntry;
 import com.example.diary.model.DiarySession;
+import com.example.diary.model.DiarySummary;
 import com.example.diary.persistence.FileDiaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CalendarService {
     
+    private static final Logger logger = LoggerFactory.getLogger(CalendarService.class);
+    
     private final FileDiaryRepository diaryRepository;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private final DateTimeFormatter fileDateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
     @Autowired
     public CalendarService(FileDiaryRepository diaryRepository) {
@@ -31,57 +35,60 @@ public class CalendarService {
      * 获取所有有日记的日期列表
      */
     public List<String> getDiaryDates() {
-        List<String> diaryDates = new ArrayList<>();
-        
+        // 日期来自内存索引，不再扫描数据目录
+        return format(diaryRepository.listSessionDates());
+    }
+    
+    /**
+     * 获取指定月份中有日记的日期列表
+     */
+    public List<String> getDiaryDates(YearMonth month) {
+        return format(diaryRepository.listSessionDates(month));
+    }
+    
+    /**
+     * 根据日期获取日记摘要（不加载日记条目）
+     */
+    public DiarySummary getDiarySummary(String date) {
         try {
-            // 使用FileDiaryRepository的数据目录
-            String dataDirectory = diaryRepository.getDataDirectory();
-            Path dataPath = Paths.get(dataDirectory);
-            if (Files.exists(dataPath) && Files.isDirectory(dataPath)) {
-                // 遍历data目录下的所有日记文件
-                Files.list(dataPath)
-                    .filter(path -> path.toString().endsWith(".json"))
-                    .forEach(path -> {
-                        String fileName = path.getFileName().toString();
-                        // 提取日期部分：diary_2025-12-14.json -> 2025-12-14
-                        if (fileName.startsWith("diary_")) {
-                            String dateStr = fileName.substring(6, fileName.length() - 5);
-                            try {
-                                LocalDate date = LocalDate.parse(dateStr, fileDateFormatter);
-                                // 使用FileDiaryRepository检查日记是否存在
-                                if (diaryRepository.sessionExists(date)) {
-                                    diaryDates.add(dateStr);
-                                }
-                            } catch (Exception e) {
-                                // 日期格式不合法，跳过
-                            }
-                        }
-                    });
-            }
+            return diaryRepository.loadSummary(LocalDate.parse(date, dateFormatter));
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("获取日记摘要失败：{}", date, e);
+            return null;
         }
-        
-        return diaryDates.stream().sorted().collect(Collectors.toList());
     }
     
     /**
-     * 根据日期获取日记内容
+     * 分页获取日记条目
      */
-    public DiarySession getDiaryByDate(String date) {
+    public List<DiaryEntry> getDiaryEntries(String date, int offset, int limit) {
         try {
-            // 使用注入的FileDiaryRepository来加载日记
-            return diaryRepository.loadSession(java.time.LocalDate.parse(date));
+            return diaryRepository.loadEntries(LocalDate.parse(date, dateFormatter), offset, limit);
         } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+            logger.error("分页获取日记条目失败：{}", date, e);
+            return List.of();
         }
     }
     
+    /**
+     * 流式获取日期范围内的日记会话（调用方负责关闭流）
+     */
+    public Stream<DiarySession> streamDiaries(LocalDate from, LocalDate to) {
+        return diaryRepository.streamSessions(from, to);
+    }
+    
     /**
      * 检查指定日期是否有日记
      */
     public boolean hasDiary(String date) {
-        return getDiaryDates().contains(date);
+        try {
+            return diaryRepository.sessionExists(LocalDate.parse(date, dateFormatter));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+    
+    private List<String> format(Collection<LocalDate> dates) {
+        return dates.stream().map(dateFormatter::format).collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package com.example.diary.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 结束日记的异步任务
+ * 记录当前阶段、已生成的文本和最终结果；监听者在阶段变化、收到输出片段时得到通知
+ */
+public class DiaryJob {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 任务阶段
+     */
+    public enum Stage {
+        QUEUED, GENERATING, PARSING, SAVING, DONE, FAILED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED;
+        }
+    }
+
+    /**
+     * 任务监听者（在执行任务的线程上回调）
+     */
+    public interface Listener {
+
+        /**
+         * 阶段变化
+         * @param job 任务
+         */
+        void onStage(DiaryJob job);
+
+        /**
+         * 收到模型输出片段
+         * @param text 片段文本
+         * @param offset 片段在已生成文本中的起始位置
+         */
+        void onToken(String text, int offset);
+    }
+
+    private final String id;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final long createdMillis = System.currentTimeMillis();
+
+    private Stage stage = Stage.QUEUED;
+    private long finishedMillis;
+    private final StringBuilder text = new StringBuilder();
+    private Map<String, Object> result;
+
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public DiaryJob(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized Stage getStage() {
+        return stage;
+    }
+
+    public synchronized Map<String, Object> getResult() {
+        return result;
+    }
+
+    /**
+     * 完成时间（毫秒），未完成时为0
+     * @return 完成时间
+     */
+    public synchronized long getFinishedMillis() {
+        return finishedMillis;
+    }
+
+    /**
+     * 进入新的阶段
+     * @param next 新阶段
+     */
+    public void setStage(Stage next) {
+        List<Listener> targets;
+        synchronized (this) {
+            if (stage.isFinished() || stage == next) {
+                return;
+            }
+            stage = next;
+            targets = new ArrayList<>(listeners);
+        }
+        targets.forEach(listener -> listener.onStage(this));
+    }
+
+    /**
+     * 追加模型输出片段
+     * @param token 片段文本
+     */
+    public void appendToken(String token) {
+        List<Listener> targets;
+        int offset;
+        synchronized (this) {
+            offset = text.length();
+            text.append(token);
+            targets = new ArrayList<>(listeners);
+        }
+        targets.forEach(listener -> listener.onToken(token, offset));
+    }
+
+    /**
+     * 结束任务
+     * @param finalStage DONE 或 FAILED
+     * @param payload 与同步接口相同的结果
+     */
+    public void finish(Stage finalStage, Map<String, Object> payload) {
+        List<Listener> targets;
+        synchronized (this) {
+            result = payload;
+            stage = finalStage;
+            finishedMillis = System.currentTimeMillis();
+            targets = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        targets.forEach(listener -> listener.onStage(this));
+    }
+
+    /**
+     * 注册监听者；任务已结束时不注册
+     * @param listener 监听者
+     * @return 是否注册成功
+     */
+    public synchronized boolean addListener(Listener listener) {
+        if (stage.isFinished()) {
+            return false;
+        }
+        listeners.add(listener);
+        return true;
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 获取任务状态
+     * @param includeText 是否包含已生成的文本（断线重连时用于恢复草稿）
+     * @return 编号、阶段、耗时、已生成字符数，结束后附带结果
+     */
+    public synchronized Map<String, Object> toMap(boolean includeText) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("stage", stage.name());
+        map.put("createdAt", createdAt.format(TIMESTAMP_FORMATTER));
+        map.put("elapsedMs", (finishedMillis > 0 ? finishedMillis : System.currentTimeMillis()) - createdMillis);
+        map.put("generatedChars", text.length());
+        if (includeText) {
+            map.put("text", text.toString());
+        }
+        if (result != null) {
+            map.put("result", result);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.diary.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 结束日记的异步任务服务
+ * 请求线程只负责提交任务并返回编号，生成在后台线程上完成；
+ * 结果在内存中保留一段时间，供轮询或SSE订阅获取
+ */
+@Service
+public class DiaryJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiaryJobService.class);
+
+    /**
+     * 已结束任务的保留时间（分钟）
+     */
+    @Value("${diary.jobs.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private final DiarySessionService diaryService;
+    private final AsyncTaskExecutor taskExecutor;
+
+    private final Map<String, DiaryJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 正在执行的结束任务（同一时间只有一个活跃会话，重复提交返回同一个任务）
+     */
+    private DiaryJob activeJob;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private ScheduledExecutorService cleaner;
+
+    public DiaryJobService(DiarySessionService diaryService,
+                           @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.diaryService = diaryService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "diary-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::removeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 提交结束日记任务；已有任务在执行时直接返回该任务
+     * @return 任务
+     */
+    public synchronized DiaryJob submitEndJob() {
+        if (activeJob != null && !activeJob.getStage().isFinished()) {
+            return activeJob;
+        }
+
+        DiaryJob job = new DiaryJob(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        activeJob = job;
+        submitted.incrementAndGet();
+        taskExecutor.execute(() -> run(job));
+        logger.info("已提交结束日记任务：{}", job.getId());
+        return job;
+    }
+
+    /**
+     * 在后台线程上执行任务，结果格式与同步的 /end 接口相同
+     */
+    private void run(DiaryJob job) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        DiaryJob.Stage finalStage = DiaryJob.Stage.DONE;
+        try {
+            String message = diaryService.endDiarySession(job);
+            result.put("success", true);
+            result.put("message", message);
+            result.put("sessionStatus", diaryService.getSessionStatus());
+        } catch (GenerationRejectedException e) {
+            // 模型繁忙或不可用，会话仍处于记录中，可稍后重新提交
+            finalStage = DiaryJob.Stage.FAILED;
+            result.put("success", false);
+            result.put("rejected", true);
+            result.put("message", e.getMessage());
+            result.put("sessionStatus", diaryService.getSessionStatus());
+        } catch (Exception e) {
+            logger.error("结束日记任务失败：{}", job.getId(), e);
+            finalStage = DiaryJob.Stage.FAILED;
+            result.put("success", false);
+            result.put("message", "结束日记失败：" + e.getMessage());
+        }
+
+        (finalStage == DiaryJob.Stage.DONE ? completed : failed).incrementAndGet();
+        job.finish(finalStage, result);
+        logger.info("结束日记任务{}：{}", finalStage == DiaryJob.Stage.DONE ? "完成" : "失败", job.getId());
+    }
+
+    /**
+     * 获取任务
+     * @param id 任务编号
+     * @return 任务，不存在或已过期时返回null
+     */
+    public DiaryJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * 删除结束时间超过保留期的任务
+     */
+    private void removeExpired() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        jobs.values().removeIf(job -> {
+            long finishedMillis = job.getFinishedMillis();
+            boolean remove = finishedMillis > 0 && finishedMillis < cutoff;
+            if (remove) {
+                expired.incrementAndGet();
+            }
+            return remove;
+        });
+    }
+
+    /**
+     * 获取任务统计
+     * @return 提交、完成、失败、过期次数和当前保留的任务数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("expired", expired.get());
+        stats.put("retained", jobs.size());
+        stats.put("ttlMinutes", ttlMinutes);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.diary.service;
+
+import com.example.diary.model.DiaryEntry;
+import com.example.diary.model.DiarySession;
+import com.example.diary.model.SearchHit;
+import com.example.diary.persistence.DiaryTokenizer;
+import com.example.diary.persistence.FileDiaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 日记检索服务
+ * 基于存储库维护的倒排索引排序，只为返回的结果加载日记以生成片段
+ */
+@Service
+public class DiarySearchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiarySearchService.class);
+    
+    /**
+     * 片段中命中位置前后保留的字符数
+     */
+    private static final int SNIPPET_RADIUS = 40;
+    
+    private final FileDiaryRepository diaryRepository;
+    
+    public DiarySearchService(FileDiaryRepository diaryRepository) {
+        this.diaryRepository = diaryRepository;
+    }
+    
+    /**
+     * 启动后在后台补建索引（首次启用检索、索引文件丢失，或日记在索引最后一次落盘后又被改写时）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            int added = diaryRepository.reconcileSearchIndex();
+            if (added > 0) {
+                logger.info("全文索引补建完成：{}篇日记，耗时{}ms", added, System.currentTimeMillis() - start);
+            }
+        }, "diary-search-reconciler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * 检索日记
+     * @param query 查询文本
+     * @param limit 最多返回的结果数
+     * @return 按相关度降序排列的结果
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<String> terms = DiaryTokenizer.tokenizeQuery(query);
+        List<SearchHit> hits = new ArrayList<>();
+        for (Map.Entry<LocalDate, Double> ranked : diaryRepository.search(query, limit)) {
+            String snippet = null;
+            try {
+                DiarySession session = diaryRepository.loadSession(ranked.getKey());
+                if (session != null) {
+                    snippet = snippet(session, query.trim(), terms);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("生成检索片段失败：{}，{}", ranked.getKey(), e.getMessage());
+            }
+            hits.add(new SearchHit(ranked.getKey(), ranked.getValue(), snippet));
+        }
+        return hits;
+    }
+    
+    /**
+     * 优先截取完整查询出现的位置，其次是第一个命中的词项
+     */
+    private String snippet(DiarySession session, String query, List<String> terms) {
+        List<String> texts = new ArrayList<>();
+        for (DiaryEntry entry : session.getEntries()) {
+            texts.add(entry.getContent());
+        }
+        texts.add(session.getGeneratedDiary());
+        texts.add(session.getSummary());
+        texts.add(session.getInsights());
+        
+        List<String> needles = new ArrayList<>();
+        needles.add(query.toLowerCase(Locale.ROOT));
+        needles.addAll(terms);
+        for (String needle : needles) {
+            if (needle.isEmpty()) {
+                continue;
+            }
+            for (String text : texts) {
+                if (text == null) {
+                    continue;
+                }
+                int index = text.toLowerCase(Locale.ROOT).indexOf(needle);
+                if (index >= 0) {
+                    int from = Math.max(0, index - SNIPPET_RADIUS);
+                    int to = Math.min(text.length(), index + needle.length() + SNIPPET_RADIUS);
+                    return (from > 0 ? "…" : "") + text.substring(from, to).replace('\n', ' ')
+                        + (to < text.length() ? "…" : "");
+                }
+            }
+        }
+        return null;
+    }
+}
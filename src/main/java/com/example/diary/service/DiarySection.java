@@ -0,0 +1,46 @@
+package com.example.diary.service;
+
+/**
+ * 日记总结的三个部分
+ * 标题用于整体生成时的分隔标记，模板是该部分的输出要求
+ */
+public enum DiarySection {
+    
+    /**
+     * 完整版日记
+     */
+    DIARY("完整版日记",
+        "[将当日全部记录整合为一篇结构清晰、表达更成熟、语言自然流畅的日记。不得添加任何我未提及的事实、行为或情绪。不得拔高、不合理美化，也不得弱化原有感受。保留第一人称与真实语气。]"),
+    
+    /**
+     * 五点条列总结
+     */
+    SUMMARY("五点条列总结",
+        "1. [今天发生了什么 / 我的整体状态]\n"
+            + "2. [今天的灵感或重要想法]\n"
+            + "3. [我表达过的积极愿望]\n"
+            + "4. [今天值得感谢的事]\n"
+            + "5. [未完成或隐含的待办事项]"),
+    
+    /**
+     * 洞察与建议
+     */
+    INSIGHTS("洞察与建议",
+        "[以心理学专业视角 + 人生导师式语气进行分析。重点放在：情绪模式、行为倾向、内在需求或潜在压力。提供温和、具体、不说教的建议或鼓励。不进行病理化判断，不贴标签。]");
+    
+    private final String title;
+    private final String template;
+    
+    DiarySection(String title, String template) {
+        this.title = title;
+        this.template = template;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getTemplate() {
+        return template;
+    }
+}
@@ -1,15 +1,22 @@
 package com.example.diary.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.example.diary.model.DiaryEntry;
 import com.example.diary.model.DiarySession;
 import com.example.diary.persistence.FileDiaryRepository;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * 日记会话管理服务
  * 负责管理日记会话的生命周期和业务逻辑
@@ -44,9 +51,24 @@ public class DiarySessionService {
      */
     private DiarySession currentSession;
     
+    /**
+     * 正在结束（生成总结中）的会话，没有时为null
+     * 生成可能持续数分钟，期间拒绝再次结束和新的记录，避免重复生成或记录丢失
+     */
+    private DiarySession ending;
+    
+    /**
+     * 保护 currentSession 与 ending 的锁；只在短临界区内持有，模型调用在锁外进行
+     */
+    private final Object lock = new Object();
+    
     private final FileDiaryRepository diaryRepository;
     private final OllamaService ollamaService;
     private final PromptBuilder promptBuilder;
+    private final RollingSummarizer rollingSummarizer;
+    private final PromptBudget promptBudget;
+    private final SectionGenerator sectionGenerator;
+    private final StructuredDiaryGenerator structuredGenerator;
     
     /**
      * 构造函数
@@ -54,10 +76,61 @@ public class DiarySessionService {
     @Autowired
     public DiarySessionService(FileDiaryRepository diaryRepository, 
                               OllamaService ollamaService, 
-                              PromptBuilder promptBuilder) {
+                              PromptBuilder promptBuilder,
+                              RollingSummarizer rollingSummarizer,
+                              PromptBudget promptBudget,
+                              SectionGenerator sectionGenerator,
+                              StructuredDiaryGenerator structuredGenerator) {
         this.diaryRepository = diaryRepository;
         this.ollamaService = ollamaService;
         this.promptBuilder = promptBuilder;
+        this.rollingSummarizer = rollingSummarizer;
+        this.promptBudget = promptBudget;
+        this.sectionGenerator = sectionGenerator;
+        this.structuredGenerator = structuredGenerator;
+    }
+    
+    /**
+     * 启动时重放未结束的会话日志
+     * 已写入结束记录（生成完成但保存未完成）的会话直接压实；
+     * 仍在记录中的会话，最新的恢复为当前会话，更早的直接压实为日记文件
+     */
+    @PostConstruct
+    public void recoverUnfinishedSessions() {
+        List<DiarySession> sessions = new ArrayList<>();
+        for (DiarySession session : diaryRepository.recoverUnfinishedSessions()) {
+            if (session.isActive()) {
+                sessions.add(session);
+            } else {
+                try {
+                    diaryRepository.finalizeSession(session);
+                    logger.info("已保存上次未完成保存的日记会话：{}", session.getDate());
+                } catch (RuntimeException e) {
+                    // 会话日志保留，下次启动再试
+                    logger.error("保存上次未完成保存的日记会话失败：{}", session.getDate(), e);
+                }
+            }
+        }
+        if (sessions.isEmpty()) {
+            return;
+        }
+        
+        for (int i = 0; i < sessions.size() - 1; i++) {
+            DiarySession stale = sessions.get(i);
+            if (stale.getEntryCount() == 0) {
+                diaryRepository.discardJournal(stale);
+                continue;
+            }
+            stale.endSession();
+            diaryRepository.finalizeSession(stale);
+            logger.info("已压实未结束的历史会话：{}", stale.getDate());
+        }
+        
+        currentSession = sessions.get(sessions.size() - 1);
+        diaryRepository.resumeJournal(currentSession);
+        rollingSummarizer.track(currentSession);
+        logger.info("已恢复未结束的日记会话，日期：{}，记录数量：{}", 
+            currentSession.getDate(), currentSession.getEntryCount());
     }
     
     /**
@@ -91,14 +164,23 @@ public class DiarySessionService {
      * @return 响应消息
      */
     private String startDiarySession() {
-        // 检查是否已有活跃会话
-        if (currentSession != null && currentSession.isActive()) {
-            return "今天已经开始了日记记录，请继续记录或输入'结束日记'来结束";
+        synchronized (lock) {
+            if (ending != null) {
+                return "正在生成今天的日记总结，请在总结完成后再开始新的日记";
+            }
+            // 检查是否已有活跃会话
+            if (currentSession != null && currentSession.isActive()) {
+                return "今天已经开始了日记记录，请继续记录或输入'结束日记'来结束";
+            }
+            
+            // 创建新的日记会话（去掉每天只能记录一次的限制）
+            currentSession = new DiarySession();
+            currentSession.startSession();
+            diaryRepository.startJournal(currentSession);
+            rollingSummarizer.track(currentSession);
         }
-        
-        // 创建新的日记会话（去掉每天只能记录一次的限制）
-        currentSession = new DiarySession();
-        currentSession.startSession();
+        // 用户记录期间在后台加载模型，结束日记时不再等待冷启动
+        ollamaService.warmUpForSession();
         
         logger.info("开始新的日记会话，日期：{}", LocalDate.now());
         
@@ -111,9 +193,22 @@ public class DiarySessionService {
      * @return 处理结果
      */
     private String processContentInput(String content) {
+        DiarySession session;
+        synchronized (lock) {
+            // 总结生成期间的记录不会进入提示词，拒绝而不是静默丢失
+            if (ending != null) {
+                throw new IllegalStateException("正在生成今天的日记总结，本条内容未记录，请在总结完成后开始新的日记");
+            }
+            session = currentSession != null && currentSession.isActive() ? currentSession : null;
+            if (session != null) {
+                DiaryEntry entry = session.addEntry(content);
+                diaryRepository.appendEntry(session, entry);
+            }
+        }
+        
         // 如果有活跃会话，记录内容并回复"收到啦"
-        if (currentSession != null && currentSession.isActive()) {
-            currentSession.addEntry(content);
+        if (session != null) {
+            rollingSummarizer.onEntryRecorded(session, content);
             logger.info("记录日记条目：{}", content);
             return FIXED_RESPONSE;
         } else {
@@ -124,63 +219,199 @@ public class DiarySessionService {
     }
     
     /**
-     * 记录日记条目
-     * @param content 日记内容
-     * @return 固定响应文本
+     * 结束日记会话
+     * @return 模型生成的日记总结
+     */
+    private String endDiarySession() {
+        return endDiarySession(null, null);
+    }
+    
+    /**
+     * 以流式生成的方式结束日记会话，模型输出的片段逐个回调；
+     * 完整输出的解析与保存与非流式结束相同
+     * @param onToken 模型输出片段的回调
+     * @return 模型生成的日记总结，没有记录时返回"NO_CONTENT"
+     * @throws GenerationRejectedException 生成队列已满（会话保持活跃）
      */
-    private String recordDiaryEntry(String content) {
-        currentSession.addEntry(content);
-        logger.info("记录日记条目：{}", content);
-        return FIXED_RESPONSE;
+    public String endDiarySessionStreaming(Consumer<String> onToken) {
+        return endDiarySession(onToken, null);
+    }
+    
+    /**
+     * 在异步任务中结束日记会话，生成过程中更新任务阶段并追加输出片段
+     * @param job 异步任务
+     * @return 模型生成的日记总结，没有记录时返回"NO_CONTENT"
+     * @throws GenerationRejectedException 生成队列已满（会话保持活跃）
+     */
+    public String endDiarySession(DiaryJob job) {
+        return endDiarySession(job::appendToken, job::setStage);
     }
     
     /**
      * 结束日记会话
+     * @param onToken 模型输出片段的回调，为null时使用非流式调用
+     * @param onStage 阶段变化的回调，可以为null
      * @return 模型生成的日记总结
      */
-    private String endDiarySession() {
-        // 检查是否有活跃会话
-        if (currentSession == null || !currentSession.isActive()) {
-            return "当前没有活跃的日记会话，请先输入'开始日记'";
-        }
-        
-        // 检查是否有日记记录
-        if (currentSession.getEntryCount() == 0) {
-            currentSession.endSession();
-            currentSession = null;
-            // 返回特殊标识，让前端知道不需要显示总结
-            return "NO_CONTENT";
+    private String endDiarySession(Consumer<String> onToken, Consumer<DiaryJob.Stage> onStage) {
+        Consumer<DiaryJob.Stage> stages = onStage != null ? onStage : stage -> { };
+        synchronized (lock) {
+            // 已有结束在进行中（异步任务、流式或同步结束），不再重复生成
+            if (ending != null) {
+                throw new GenerationRejectedException("正在生成今天的日记总结，请等待当前任务完成");
+            }
+            
+            // 检查是否有活跃会话
+            if (currentSession == null || !currentSession.isActive()) {
+                return "当前没有活跃的日记会话，请先输入'开始日记'";
+            }
+            
+            // 检查是否有日记记录
+            if (currentSession.getEntryCount() == 0) {
+                currentSession.endSession();
+                diaryRepository.discardJournal(currentSession);
+                rollingSummarizer.forget(currentSession);
+                currentSession = null;
+                // 返回特殊标识，让前端知道不需要显示总结
+                return "NO_CONTENT";
+            }
+            
+            // 标记结束进行中；此后 currentSession 在本次结束完成前不会被替换或追加记录
+            ending = currentSession;
         }
         
         try {
             logger.info("结束日记会话，开始调用大模型生成总结，记录数量：{}", currentSession.getEntryCount());
+            stages.accept(DiaryJob.Stage.GENERATING);
             
-            // 构建Prompt
-            String prompt = promptBuilder.buildDiaryProcessingPrompt(currentSession.getEntryContents());
-            
-            // 调用大模型
-            String modelResponse = ollamaService.generateContent(prompt);
+            // 准备Prompt素材（滚动摘要、超出预算时的分段压缩）
+            PromptMaterial material = preparePromptMaterial();
             
-            // 解析模型响应（简化处理，实际应用中可能需要更复杂的解析）
-            parseModelResponse(modelResponse);
+            if (sectionGenerator.isEnabled()) {
+                // 三个部分分别生成，流式时只转发完整版日记的片段
+                Map<DiarySection, String> sections = sectionGenerator.generate(
+                    section -> buildSectionPrompt(section, material), onToken);
+                currentSession.setGeneratedDiary(sections.get(DiarySection.DIARY));
+                currentSession.setSummary(sections.get(DiarySection.SUMMARY));
+                currentSession.setInsights(sections.get(DiarySection.INSIGHTS));
+            } else if (structuredGenerator.isEnabled()) {
+                // 结构化输出是JSON，不适合逐片段展示，使用非流式调用
+                StructuredDiaryGenerator.StructuredDiary structured =
+                    structuredGenerator.generate(buildStructuredPrompt(material));
+                stages.accept(DiaryJob.Stage.PARSING);
+                applyStructuredDiary(structured);
+            } else {
+                String prompt = buildProcessingPrompt(material);
+                
+                // 调用大模型（流式时边生成边转发片段）
+                String modelResponse = onToken == null
+                    ? ollamaService.generateContent(prompt)
+                    : ollamaService.generateContentStream(prompt, fragment -> {
+                        if (fragment.getResponse() != null && !fragment.getResponse().isEmpty()) {
+                            onToken.accept(fragment.getResponse());
+                        }
+                    });
+                
+                // 解析模型响应（简化处理，实际应用中可能需要更复杂的解析）
+                stages.accept(DiaryJob.Stage.PARSING);
+                parseModelResponse(modelResponse);
+            }
             
-            // 结束会话并保存
-            currentSession.endSession();
-            diaryRepository.saveSession(currentSession);
+            // 结束会话并提交异步保存（追加日志在写入完成后删除）
+            stages.accept(DiaryJob.Stage.SAVING);
+            synchronized (lock) {
+                currentSession.endSession();
+                diaryRepository.finalizeSessionAsync(currentSession);
+                rollingSummarizer.forget(currentSession);
+            }
             
-            logger.info("日记会话结束并保存成功");
+            logger.info("日记会话结束，已提交保存");
             
             // 返回模型生成的完整内容
             return buildFinalOutput();
             
+        } catch (GenerationRejectedException e) {
+            // 模型繁忙时会话保持活跃，用户稍后可以再次结束
+            logger.warn("结束日记会话被拒绝：{}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("结束日记会话时发生错误", e);
-            currentSession.endSession();
-            currentSession = null;
+            // 会话日志保留在磁盘上，重启后可重新恢复该会话；通道立即关闭，避免泄漏文件句柄
+            synchronized (lock) {
+                currentSession.endSession();
+                diaryRepository.closeJournal(currentSession);
+                rollingSummarizer.forget(currentSession);
+                currentSession = null;
+            }
             return "处理日记时发生错误：" + e.getMessage();
+        } finally {
+            synchronized (lock) {
+                ending = null;
+            }
         }
     }
     
+    /**
+     * 准备结束日记的Prompt素材：已有滚动摘要时只附上摘要之后的记录，否则附上全部记录；
+     * 超出上下文窗口预算时先把记录分段压缩为摘要
+     * @return Prompt素材
+     */
+    private PromptMaterial preparePromptMaterial() {
+        List<String> entries = currentSession.getEntryContents();
+        RollingSummarizer.RollingSummary rolling = rollingSummarizer.current(currentSession);
+        if (rolling != null && rolling.coveredEntries() > entries.size()) {
+            rolling = null;
+        }
+        
+        PromptMaterial material;
+        int covered = 0;
+        if (rolling == null) {
+            material = new PromptMaterial(null, entries, 1);
+        } else {
+            covered = rolling.coveredEntries();
+            rollingSummarizer.recordMerge(rolling);
+            logger.info("使用滚动摘要结束日记：摘要覆盖{}条，新记录{}条", covered, entries.size() - covered);
+            material = new PromptMaterial(rolling.text(), entries.subList(covered, entries.size()), covered + 1);
+        }
+        String prompt = buildProcessingPrompt(material);
+        if (promptBudget.fits(prompt)) {
+            return material;
+        }
+        
+        logger.info("提示词超出上下文窗口预算（约{}个token），分段压缩后再生成", 
+            PromptBudget.estimateTokens(prompt));
+        String condensed = promptBudget.condense(rolling != null ? rolling.text() : null,
+            entries.subList(covered, entries.size()), covered + 1);
+        return new PromptMaterial(condensed, List.of(), entries.size() + 1);
+    }
+    
+    /**
+     * 构建一次生成全部三个部分的Prompt
+     */
+    private String buildProcessingPrompt(PromptMaterial material) {
+        return material.summary() == null
+            ? promptBuilder.buildDiaryProcessingPrompt(material.entries())
+            : promptBuilder.buildDiaryProcessingPrompt(material.summary(), material.entries(), material.firstIndex());
+    }
+    
+    /**
+     * 构建按JSON输出三个部分的Prompt
+     */
+    private String buildStructuredPrompt(PromptMaterial material) {
+        return material.summary() == null
+            ? promptBuilder.buildStructuredPrompt(material.entries())
+            : promptBuilder.buildStructuredPrompt(material.summary(), material.entries(), material.firstIndex());
+    }
+    
+    /**
+     * 构建只生成其中一个部分的Prompt
+     */
+    private String buildSectionPrompt(DiarySection section, PromptMaterial material) {
+        return material.summary() == null
+            ? promptBuilder.buildSectionPrompt(section, material.entries())
+            : promptBuilder.buildSectionPrompt(section, material.summary(), material.entries(), material.firstIndex());
+    }
+    
     /**
      * 解析模型响应
      * @param modelResponse 模型响应内容
@@ -190,15 +421,36 @@ public class DiarySessionService {
         String[] sections = modelResponse.split("=== ");
         
         if (sections.length >= 4) { // 因为有标题行，所以至少需要4个部分
+            structuredGenerator.recordTextParse(true);
             currentSession.setGeneratedDiary(extractSection(sections[1], "完整版日记"));
             currentSession.setSummary(extractSection(sections[2], "五点条列总结"));
             currentSession.setInsights(extractSection(sections[3], "洞察与建议"));
         } else {
             // 如果解析失败，尝试更智能的解析
+            structuredGenerator.recordTextParse(false);
             parseModelResponseIntelligently(modelResponse);
         }
     }
     
+    /**
+     * 写入结构化输出的结果，没有解析出任何部分时按文本格式解析原输出
+     * @param structured 结构化输出
+     */
+    private void applyStructuredDiary(StructuredDiaryGenerator.StructuredDiary structured) {
+        if (!structured.isParsed()) {
+            parseModelResponseIntelligently(structured.rawOutput());
+            return;
+        }
+        String summary = structured.formattedSummary();
+        currentSession.setGeneratedDiary(isBlank(structured.diary()) ? "无内容" : structured.diary().trim());
+        currentSession.setSummary(summary.isEmpty() ? "无总结内容" : summary);
+        currentSession.setInsights(isBlank(structured.insights()) ? "无洞察建议" : structured.insights().trim());
+    }
+    
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+    
     /**
      * 智能解析模型响应
      * @param modelResponse 模型响应内容
@@ -307,14 +559,18 @@ public class DiarySessionService {
      * @return 会话状态信息
      */
     public String getSessionStatus() {
-        if (currentSession == null) {
-            return "当前没有活跃的日记会话";
-        }
-        
-        if (currentSession.isActive()) {
-            return String.format("日记记录中，已记录%d条内容", currentSession.getEntryCount());
-        } else {
-            return "日记会话已结束";
+        synchronized (lock) {
+            if (currentSession == null) {
+                return "当前没有活跃的日记会话";
+            }
+            
+            if (ending != null) {
+                return String.format("正在生成日记总结，已记录%d条内容", ending.getEntryCount());
+            } else if (currentSession.isActive()) {
+                return String.format("日记记录中，已记录%d条内容", currentSession.getEntryCount());
+            } else {
+                return "日记会话已结束";
+            }
         }
     }
     
@@ -323,7 +579,18 @@ public class DiarySessionService {
      * @return 当前会话
      */
     public DiarySession getCurrentSession() {
-        return currentSession;
+        synchronized (lock) {
+            return currentSession;
+        }
+    }
+    
+    /**
+     * 结束日记时交给模型的素材
+     * @param summary 较早记录的摘要，没有时为null
+     * @param entries 摘要之后的原始记录（没有摘要时为全部记录）
+     * @param firstIndex 第一条原始记录在当天的序号（从1开始）
+     */
+    private record PromptMaterial(String summary, List<String> entries, int firstIndex) {
     }
     
     /**
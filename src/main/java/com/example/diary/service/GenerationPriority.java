@@ -0,0 +1,18 @@
+package com.example.diary.service;
+
+/**
+ * 生成请求优先级
+ * 排队时高优先级请求先获得模型，同一优先级内按到达顺序
+ */
+public enum GenerationPriority {
+    
+    /**
+     * 用户正在等待结果（结束日记等）
+     */
+    INTERACTIVE,
+    
+    /**
+     * 后台任务（重新生成、预先计算等）
+     */
+    BACKGROUND
+}
@@ -0,0 +1,14 @@
+package com.example.diary.service;
+
+/**
+ * 生成队列已满时拒绝新请求
+ * 调用方应稍后重试（Web接口返回429）
+ */
+public class GenerationRejectedException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public GenerationRejectedException(String message) {
+        super(message);
+    }
+}
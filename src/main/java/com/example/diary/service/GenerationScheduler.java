@@ -0,0 +1,166 @@
+package com.example.diary.service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 生成请求调度器
+ * 限制同时发往模型的请求数（单节点并行度 × 节点数），其余请求按优先级排队；
+ * 队列已满时立即拒绝，避免突发请求在模型上堆积后一起超时
+ */
+@Component
+public class GenerationScheduler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GenerationScheduler.class);
+    
+    /**
+     * 每个节点同时执行的生成请求数（与模型的并行度一致）
+     */
+    @Value("${ollama.scheduler.max-concurrency:1}")
+    private int perEndpointConcurrency;
+    
+    /**
+     * 排队等待的请求数上限
+     */
+    @Value("${ollama.scheduler.queue-capacity:8}")
+    private int queueCapacity;
+    
+    private final OllamaHealthMonitor healthMonitor;
+    
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private int maxConcurrency;
+    private int running;
+    private long sequence;
+    
+    private final Map<GenerationPriority, PriorityStats> stats = new EnumMap<>(GenerationPriority.class);
+    
+    public GenerationScheduler(OllamaHealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+        for (GenerationPriority priority : GenerationPriority.values()) {
+            stats.put(priority, new PriorityStats());
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        maxConcurrency = perEndpointConcurrency * healthMonitor.getEndpointCount();
+    }
+    
+    /**
+     * 在调用线程上执行生成任务，模型繁忙时先排队
+     * @param priority 优先级
+     * @param task 生成任务
+     * @return 任务结果
+     * @throws GenerationRejectedException 队列已满
+     */
+    public <T> T execute(GenerationPriority priority, Supplier<T> task) {
+        PriorityStats priorityStats = stats.get(priority);
+        long enqueuedAt = System.nanoTime();
+        acquire(priority, priorityStats);
+        
+        long waitedMs = (System.nanoTime() - enqueuedAt) / 1_000_000;
+        priorityStats.totalWaitMs.addAndGet(waitedMs);
+        priorityStats.maxWaitMs.accumulateAndGet(waitedMs, Math::max);
+        if (waitedMs > 0) {
+            logger.info("生成请求排队{}ms后开始执行，优先级：{}", waitedMs, priority);
+        }
+        
+        try {
+            return task.get();
+        } finally {
+            priorityStats.completed.incrementAndGet();
+            release();
+        }
+    }
+    
+    private synchronized void acquire(GenerationPriority priority, PriorityStats priorityStats) {
+        if (running < maxConcurrency && queue.isEmpty()) {
+            running++;
+            priorityStats.admitted.incrementAndGet();
+            return;
+        }
+        if (queue.size() >= queueCapacity) {
+            priorityStats.rejected.incrementAndGet();
+            logger.warn("生成队列已满（{}），拒绝请求，优先级：{}", queue.size(), priority);
+            throw new GenerationRejectedException("模型繁忙，请稍后重试");
+        }
+        
+        Waiter waiter = new Waiter(priority, sequence++);
+        queue.add(waiter);
+        try {
+            while (running >= maxConcurrency || queue.peek() != waiter) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            queue.remove(waiter);
+            notifyAll();
+            Thread.currentThread().interrupt();
+            throw new GenerationRejectedException("等待模型时被中断");
+        }
+        queue.poll();
+        running++;
+        priorityStats.admitted.incrementAndGet();
+        // 可能还有空闲名额留给下一个等待者
+        notifyAll();
+    }
+    
+    private synchronized void release() {
+        running--;
+        notifyAll();
+    }
+    
+    /**
+     * 获取调度统计
+     * @return 执行中、排队数以及各优先级的等待时间和拒绝次数
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxConcurrency", maxConcurrency);
+        result.put("queueCapacity", queueCapacity);
+        result.put("running", running);
+        result.put("queueDepth", queue.size());
+        for (Map.Entry<GenerationPriority, PriorityStats> entry : stats.entrySet()) {
+            PriorityStats priorityStats = entry.getValue();
+            long admitted = priorityStats.admitted.get();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("admitted", admitted);
+            values.put("completed", priorityStats.completed.get());
+            values.put("rejected", priorityStats.rejected.get());
+            values.put("avgWaitMs", admitted > 0 ? priorityStats.totalWaitMs.get() / admitted : 0);
+            values.put("maxWaitMs", priorityStats.maxWaitMs.get());
+            result.put(entry.getKey().name().toLowerCase(), values);
+        }
+        return result;
+    }
+    
+    /**
+     * 排队中的请求：优先级高的在前，同优先级按到达顺序
+     */
+    private record Waiter(GenerationPriority priority, long sequence) implements Comparable<Waiter> {
+        
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+    
+    private static final class PriorityStats {
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitMs = new AtomicLong();
+        private final AtomicLong maxWaitMs = new AtomicLong();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.diary.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 首token耗时统计
+ * 按模型是否需要加载（Ollama返回的load_duration超过阈值）分为冷、热两类分别统计；
+ * 另外统计提示词评估的token数和耗时，用于比较前缀复用的效果
+ */
+public class GenerationTimings {
+    
+    private final long coldThresholdMs;
+    
+    private final Bucket warm = new Bucket();
+    private final Bucket cold = new Bucket();
+    
+    private long promptEvals;
+    private long promptEvalTokens;
+    private long promptEvalMs;
+    
+    public GenerationTimings(long coldThresholdMs) {
+        this.coldThresholdMs = coldThresholdMs;
+    }
+    
+    /**
+     * 记录一次生成
+     * @param ttftMs 首token耗时（毫秒）
+     * @param loadMs 模型加载耗时（毫秒）
+     * @return 是否为冷启动
+     */
+    public boolean record(long ttftMs, long loadMs) {
+        boolean isCold = loadMs >= coldThresholdMs;
+        (isCold ? cold : warm).add(ttftMs, loadMs);
+        return isCold;
+    }
+    
+    /**
+     * 记录一次提示词评估
+     * @param tokens 服务端实际评估的token数（已缓存的前缀不计入）
+     * @param evalMs 评估耗时（毫秒）
+     */
+    public synchronized void recordPromptEval(long tokens, long evalMs) {
+        promptEvals++;
+        promptEvalTokens += tokens;
+        promptEvalMs += evalMs;
+    }
+    
+    /**
+     * 获取统计
+     * @return 冷、热两类的次数、平均与最大首token耗时、平均加载耗时，以及提示词评估的平均token数和耗时
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("coldThresholdMs", coldThresholdMs);
+        stats.put("warm", warm.toMap());
+        stats.put("cold", cold.toMap());
+        synchronized (this) {
+            Map<String, Object> promptEval = new LinkedHashMap<>();
+            promptEval.put("count", promptEvals);
+            promptEval.put("avgTokens", promptEvals > 0 ? promptEvalTokens / promptEvals : 0);
+            promptEval.put("avgMs", promptEvals > 0 ? promptEvalMs / promptEvals : 0);
+            stats.put("promptEval", promptEval);
+        }
+        return stats;
+    }
+    
+    private static final class Bucket {
+        private long count;
+        private long totalTtftMs;
+        private long maxTtftMs;
+        private long totalLoadMs;
+        
+        synchronized void add(long ttftMs, long loadMs) {
+            count++;
+            totalTtftMs += ttftMs;
+            maxTtftMs = Math.max(maxTtftMs, ttftMs);
+            totalLoadMs += loadMs;
+        }
+        
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", count);
+            values.put("avgTtftMs", count > 0 ? totalTtftMs / count : 0);
+            values.put("maxTtftMs", maxTtftMs);
+            values.put("avgLoadMs", count > 0 ? totalLoadMs / count : 0);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.diary.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 单个Ollama推理节点
+ * 记录进行中的请求数、平滑后的请求耗时、探测结果，以及该节点自己的熔断器：
+ * 连续失败或探测失败时熔断（OPEN），冷却时间过后或探测恢复时进入半开（HALF_OPEN），
+ * 放行一个试探请求决定是否恢复
+ */
+public class OllamaEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaEndpoint.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 耗时指数平滑系数
+     */
+    private static final double LATENCY_ALPHA = 0.3;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String url;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong trips = new AtomicLong();
+
+    private volatile boolean available;
+    private volatile LocalDateTime lastCheck;
+    private volatile String lastError;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private double latencyMs;
+
+    public OllamaEndpoint(String url, int failureThreshold, long openMs) {
+        this.url = url;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * 记录一次健康探测结果
+     * @param up 是否可用
+     * @param error 失败原因
+     */
+    public void recordProbe(boolean up, String error) {
+        if (up != available) {
+            if (up) {
+                logger.info("Ollama节点已恢复：{}", url);
+            } else {
+                logger.warn("Ollama节点不可用：{}，{}", url, error);
+            }
+        }
+        available = up;
+        lastError = error;
+        lastCheck = LocalDateTime.now();
+
+        synchronized (this) {
+            if (!up && state == State.CLOSED) {
+                trip();
+            } else if (up && state == State.OPEN) {
+                // 节点已能响应，允许一个生成请求试探
+                state = State.HALF_OPEN;
+            }
+        }
+    }
+
+    /**
+     * 是否处于冷却中的熔断状态（此时不会被选中）
+     * @return 是否熔断
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && !coolDownElapsed();
+    }
+
+    /**
+     * 尝试取得发送请求的许可；半开状态下只放行一个试探请求
+     * @return 是否允许发送
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && coolDownElapsed()) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            trialInFlight = true;
+        }
+        outstanding.incrementAndGet();
+        requests.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 记录一次成功的请求
+     * @param elapsedMs 请求耗时（毫秒）
+     */
+    public synchronized void recordSuccess(long elapsedMs) {
+        outstanding.decrementAndGet();
+        latencyMs = latencyMs == 0 ? elapsedMs : LATENCY_ALPHA * elapsedMs + (1 - LATENCY_ALPHA) * latencyMs;
+        if (state != State.CLOSED) {
+            logger.info("Ollama节点熔断器恢复为关闭状态：{}", url);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * 释放许可但不改变熔断状态（请求因自身错误失败，节点本身正常）
+     */
+    public synchronized void release() {
+        outstanding.decrementAndGet();
+        trialInFlight = false;
+    }
+
+    /**
+     * 记录一次失败的请求
+     */
+    public synchronized void recordFailure() {
+        outstanding.decrementAndGet();
+        failures.incrementAndGet();
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            trip();
+        }
+    }
+
+    /**
+     * 进入熔断状态（调用方持有锁）
+     */
+    private void trip() {
+        if (state != State.OPEN) {
+            trips.incrementAndGet();
+            logger.warn("Ollama节点熔断器打开：{}，{}ms内不再分配请求", url, openMs);
+        }
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        trialInFlight = false;
+    }
+
+    private boolean coolDownElapsed() {
+        return System.currentTimeMillis() - openedAt >= openMs;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public synchronized double getLatencyMs() {
+        return latencyMs;
+    }
+
+    /**
+     * 获取节点统计
+     * @return 可用状态、熔断器状态、进行中的请求数、平滑耗时等
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("url", url);
+        stats.put("available", available);
+        stats.put("lastCheck", lastCheck != null ? lastCheck.format(TIMESTAMP_FORMATTER) : null);
+        stats.put("lastError", lastError);
+        stats.put("circuitState", state.name());
+        stats.put("outstanding", outstanding.get());
+        stats.put("requests", requests.get());
+        stats.put("failures", failures.get());
+        stats.put("trips", trips.get());
+        stats.put("latencyMs", Math.round(latencyMs));
+        return stats;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.diary.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ollama健康监控与节点选择
+ * 后台线程定期探测每个节点的 /api/tags 并缓存可用状态，页面和状态接口直接读取缓存；
+ * 生成请求按最少进行中请求数选择未熔断的节点（相同时选平滑耗时较低的），
+ * 所有节点都熔断时生成请求立即失败
+ */
+@Component
+public class OllamaHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaHealthMonitor.class);
+
+    /**
+     * Ollama节点地址列表（逗号分隔），未配置时使用 ollama.url
+     */
+    @Value("${ollama.urls:${ollama.url:http://localhost:11434}}")
+    private String[] urls;
+
+    /**
+     * 健康探测间隔（毫秒）
+     */
+    @Value("${ollama.health.interval-ms:10000}")
+    private long intervalMs;
+
+    /**
+     * 单个节点连续失败多少次后熔断
+     */
+    @Value("${ollama.health.failure-threshold:3}")
+    private int failureThreshold;
+
+    /**
+     * 熔断后的冷却时间（毫秒），之后放行一个试探请求
+     */
+    @Value("${ollama.health.open-ms:30000}")
+    private long openMs;
+
+    private final OllamaHttpClients httpClients;
+
+    private final List<OllamaEndpoint> endpoints = new ArrayList<>();
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    private ScheduledExecutorService probeExecutor;
+
+    public OllamaHealthMonitor(OllamaHttpClients httpClients) {
+        this.httpClients = httpClients;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String url : urls) {
+            String trimmed = url.trim();
+            if (!trimmed.isEmpty()) {
+                endpoints.add(new OllamaEndpoint(trimmed.replaceAll("/+$", ""), failureThreshold, openMs));
+            }
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("未配置Ollama节点地址");
+        }
+        logger.info("Ollama节点：{}", endpoints.stream().map(OllamaEndpoint::getUrl).toList());
+
+        probeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ollama-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probeExecutor.scheduleWithFixedDelay(this::probeAll, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 依次探测所有节点
+     */
+    private void probeAll() {
+        probes.incrementAndGet();
+        for (OllamaEndpoint endpoint : endpoints) {
+            try {
+                ResponseEntity<String> response = httpClients.getHealthTemplate()
+                    .getForEntity(endpoint.getUrl() + "/api/tags", String.class);
+                boolean up = response.getStatusCode().is2xxSuccessful();
+                endpoint.recordProbe(up, up ? null : "状态码：" + response.getStatusCode());
+            } catch (Exception e) {
+                endpoint.recordProbe(false, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 获取缓存的可用状态（不发起网络请求）
+     * @return 最近一次探测是否有节点可用
+     */
+    public boolean isAvailable() {
+        return endpoints.stream().anyMatch(OllamaEndpoint::isAvailable);
+    }
+
+    /**
+     * 排队前的快速检查：所有节点都在熔断中时直接失败
+     * @throws OllamaUnavailableException 没有可用节点
+     */
+    public void checkAvailable() {
+        if (endpoints.stream().allMatch(OllamaEndpoint::isOpen)) {
+            shortCircuited.incrementAndGet();
+            throw new OllamaUnavailableException("模型服务暂时不可用，请稍后重试");
+        }
+    }
+
+    /**
+     * 选择一个节点并占用其许可：进行中请求最少者优先，其次是平滑耗时较低者
+     * @param excluded 本次请求已失败过的节点
+     * @return 选中的节点（调用方完成后必须调用 recordSuccess 或 recordFailure）
+     * @throws OllamaUnavailableException 没有可用节点
+     */
+    public OllamaEndpoint acquireEndpoint(Collection<OllamaEndpoint> excluded) {
+        List<OllamaEndpoint> candidates = new ArrayList<>(endpoints);
+        candidates.removeAll(excluded);
+        candidates.sort(Comparator.comparingInt(OllamaEndpoint::getOutstanding)
+            .thenComparingDouble(OllamaEndpoint::getLatencyMs));
+        for (OllamaEndpoint endpoint : candidates) {
+            if (endpoint.tryAcquire()) {
+                return endpoint;
+            }
+        }
+        shortCircuited.incrementAndGet();
+        throw new OllamaUnavailableException("模型服务暂时不可用，请稍后重试");
+    }
+
+    /**
+     * 获取节点数量
+     * @return 节点数量
+     */
+    public int getEndpointCount() {
+        return endpoints.size();
+    }
+
+    /**
+     * 获取所有节点地址
+     * @return 节点地址
+     */
+    public List<String> getUrls() {
+        return endpoints.stream().map(OllamaEndpoint::getUrl).toList();
+    }
+
+    /**
+     * 获取健康状态和各节点统计
+     * @return 可用状态、探测次数、短路次数、各节点统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("available", isAvailable());
+        stats.put("probes", probes.get());
+        stats.put("shortCircuited", shortCircuited.get());
+        stats.put("endpoints", endpoints.stream().map(OllamaEndpoint::getStats).toList());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (probeExecutor != null) {
+            probeExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.diary.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ollama HTTP客户端
+ * 生成请求和健康检查共用一个带keep-alive的连接池，但使用各自的超时：
+ * 健康检查快速失败，生成请求允许长时间推理但不会无限期占用请求线程。
+ * 启用HTTP/2时改用JDK HttpClient（单连接多路复用，不再需要连接池）；JDK客户端的读超时只限制到响应头为止，
+ * 流式响应体的空闲超时由 {@link #streamingBody(InputStream)} 的看门狗补上。
+ */
+@Component
+public class OllamaHttpClients {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaHttpClients.class);
+
+    /**
+     * Ollama节点地址列表，用于计算连接池总容量
+     */
+    @Value("${ollama.urls:${ollama.url:http://localhost:11434}}")
+    private String[] urls;
+
+    /**
+     * 每个节点的最大连接数
+     */
+    @Value("${ollama.http.max-connections:8}")
+    private int maxConnections;
+
+    /**
+     * 建立TCP连接的超时（毫秒）
+     */
+    @Value("${ollama.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    /**
+     * 从连接池获取连接的超时（毫秒），池满时超过该时间直接失败
+     */
+    @Value("${ollama.http.pool-timeout-ms:5000}")
+    private long poolTimeoutMs;
+
+    /**
+     * 空闲连接保留时间（毫秒），超过后由后台线程关闭
+     */
+    @Value("${ollama.http.keep-alive-ms:60000}")
+    private long keepAliveMs;
+
+    /**
+     * 健康检查的响应超时（毫秒）
+     */
+    @Value("${ollama.http.health-timeout-ms:2000}")
+    private long healthTimeoutMs;
+
+    /**
+     * 生成请求的响应超时（毫秒）；流式生成时为两次数据之间的最长间隔
+     * （HTTP/2下由流式读取的看门狗检查，精度约为该值的1/4）
+     */
+    @Value("${ollama.http.generation-timeout-ms:300000}")
+    private long generationTimeoutMs;
+
+    /**
+     * 是否使用HTTP/2（明文h2c升级，需要服务端或代理支持）
+     */
+    @Value("${ollama.http.http2:false}")
+    private boolean http2;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
+    private RestTemplate generationTemplate;
+    private RestTemplate healthTemplate;
+
+    /**
+     * HTTP/2下检查流式响应空闲时间的线程
+     */
+    private ScheduledExecutorService streamWatchdog;
+
+    @PostConstruct
+    public void init() {
+        if (http2) {
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+            generationTemplate = new RestTemplate(jdkFactory(client, generationTimeoutMs));
+            healthTemplate = new RestTemplate(jdkFactory(client, healthTimeoutMs));
+            streamWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ollama-stream-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.info("Ollama客户端使用HTTP/2");
+            return;
+        }
+
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections * Math.max(urls.length, 1))
+            .setMaxConnPerRoute(maxConnections)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                .build())
+            .build();
+
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+            .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+            .evictExpiredConnections()
+            .build();
+
+        generationTemplate = new RestTemplate(pooledFactory(generationTimeoutMs));
+        healthTemplate = new RestTemplate(pooledFactory(healthTimeoutMs));
+        logger.info("Ollama客户端连接池已创建，每个节点最大连接数：{}", maxConnections);
+    }
+
+    /**
+     * 共享连接池的请求工厂，响应超时按用途区分
+     */
+    private ClientHttpRequestFactory pooledFactory(long responseTimeoutMs) {
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+            .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+            .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfig);
+            return context;
+        });
+        return factory;
+    }
+
+    private ClientHttpRequestFactory jdkFactory(HttpClient client, long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return factory;
+    }
+
+    /**
+     * 获取用于生成请求的客户端
+     * @return RestTemplate
+     */
+    public RestTemplate getGenerationTemplate() {
+        return generationTemplate;
+    }
+
+    /**
+     * 为流式响应体加上两次数据之间的空闲超时。
+     * HttpClient5的响应超时本身就是套接字读超时，原样返回；JDK HttpClient只限制响应头，
+     * 由看门狗在超过 generation-timeout-ms 没有新数据时关闭响应体，读取方随即收到超时异常
+     * @param body 流式响应体
+     * @return 带空闲超时的响应体
+     */
+    public InputStream streamingBody(InputStream body) {
+        if (streamWatchdog == null || generationTimeoutMs <= 0) {
+            return body;
+        }
+        return new IdleTimeoutInputStream(body, generationTimeoutMs, streamWatchdog);
+    }
+
+    /**
+     * 获取用于健康检查的客户端
+     * @return RestTemplate
+     */
+    public RestTemplate getHealthTemplate() {
+        return healthTemplate;
+    }
+
+    /**
+     * 获取连接池统计
+     * @return 已租用、空闲、等待中的连接数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("http2", http2);
+        if (connectionManager != null) {
+            PoolStats total = connectionManager.getTotalStats();
+            stats.put("leased", total.getLeased());
+            stats.put("available", total.getAvailable());
+            stats.put("pending", total.getPending());
+            stats.put("max", total.getMax());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (streamWatchdog != null) {
+            streamWatchdog.shutdownNow();
+        }
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                logger.warn("关闭Ollama客户端失败", e);
+            }
+        }
+    }
+
+    /**
+     * 超过空闲时间没有读到数据时被看门狗关闭的输入流
+     */
+    private static final class IdleTimeoutInputStream extends FilterInputStream {
+
+        private final long timeoutMs;
+        private final ScheduledFuture<?> check;
+        private volatile long lastActivity = System.nanoTime();
+        private volatile boolean timedOut;
+
+        IdleTimeoutInputStream(InputStream in, long timeoutMs, ScheduledExecutorService watchdog) {
+            super(in);
+            this.timeoutMs = timeoutMs;
+            long periodMs = Math.max(timeoutMs / 4, 1);
+            this.check = watchdog.scheduleWithFixedDelay(this::checkIdle, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void checkIdle() {
+            if (System.nanoTime() - lastActivity < TimeUnit.MILLISECONDS.toNanos(timeoutMs)) {
+                return;
+            }
+            timedOut = true;
+            check.cancel(false);
+            logger.warn("流式响应超过{}ms没有新数据，关闭连接", timeoutMs);
+            try {
+                in.close();
+            } catch (IOException e) {
+                logger.debug("关闭空闲的流式响应失败：{}", e.getMessage());
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value;
+            try {
+                value = in.read();
+            } catch (IOException e) {
+                throw timedOut ? timeout(e) : e;
+            }
+            return afterRead(value);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count;
+            try {
+                count = in.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw timedOut ? timeout(e) : e;
+            }
+            return afterRead(count);
+        }
+
+        /**
+         * 被看门狗关闭后，阻塞中的读取可能返回-1或抛出"closed"，统一报告为超时
+         */
+        private int afterRead(int result) throws IOException {
+            if (timedOut) {
+                throw timeout(null);
+            }
+            lastActivity = System.nanoTime();
+            return result;
+        }
+
+        private SocketTimeoutException timeout(IOException cause) {
+            SocketTimeoutException timeout = new SocketTimeoutException("流式响应超过" + timeoutMs + "ms没有新数据");
+            if (cause != null) {
+                timeout.initCause(cause);
+            }
+            return timeout;
+        }
+
+        @Override
+        public void close() throws IOException {
+            check.cancel(false);
+            super.close();
+        }
+    }
+}
@@ -1,19 +1,52 @@
 package com.example.diary.service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import com.example.diary.model.OllamaChatMessage;
+import com.example.diary.model.OllamaChatRequest;
+import com.example.diary.model.OllamaOptions;
 import com.example.diary.model.OllamaRequest;
 import com.example.diary.model.OllamaResponse;
+import com.example.diary.persistence.GenerationCache;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * Ollama服务类
  * 负责与本地大语言模型进行HTTP通信
@@ -23,27 +56,111 @@ public class OllamaService {
     
     private static final Logger logger = LoggerFactory.getLogger(OllamaService.class);
     
-    /**
-     * Ollama API基础URL
-     */
-    @Value("${ollama.url:http://localhost:11434}")
-    private String ollamaUrl;
-    
     /**
      * 默认模型名称
      */
     @Value("${ollama.model:qwen2.5:7b}")
     private String defaultModel;
     
+    /**
+     * 模型在内存中保留的时长，随每个请求发送
+     */
+    @Value("${ollama.keep-alive:30m}")
+    private String keepAlive;
+    
+    /**
+     * 上下文窗口大小（token数），0表示使用服务端默认值
+     */
+    @Value("${ollama.options.num-ctx:8192}")
+    private int numCtx;
+    
+    /**
+     * 单次最多生成的token数，0表示不限制，用于约束生成耗时
+     */
+    @Value("${ollama.options.num-predict:2048}")
+    private int numPredict;
+    
+    /**
+     * 是否使用对话API（/api/chat）：规则作为固定的system消息发送，服务端可复用已评估的前缀
+     */
+    @Value("${ollama.chat.enabled:false}")
+    private boolean chatEnabled;
+    
+    /**
+     * 随每个请求发送的生成参数，没有需要覆盖的参数时为null
+     */
+    private OllamaOptions options;
+    
+    /**
+     * 是否在应用启动后预热模型
+     */
+    @Value("${ollama.warmup.on-startup:true}")
+    private boolean warmupOnStartup;
+    
+    /**
+     * 是否在日记会话开始时预热模型
+     */
+    @Value("${ollama.warmup.on-session-start:true}")
+    private boolean warmupOnSessionStart;
+    
+    /**
+     * 模型加载耗时超过该值（毫秒）时视为冷启动
+     */
+    @Value("${ollama.warmup.cold-threshold-ms:500}")
+    private long coldThresholdMs;
+    
+    private GenerationTimings timings;
+    
+    /**
+     * 正在预热的节点，避免重复预热
+     */
+    private final Set<String> warming = ConcurrentHashMap.newKeySet();
+    
+    private final OllamaHttpClients httpClients;
+    private final GenerationCache generationCache;
+    private final GenerationScheduler scheduler;
+    private final OllamaHealthMonitor healthMonitor;
+    private final PromptBuilder promptBuilder;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     
+    /**
+     * 正在进行的生成请求（缓存键 -> 结果）
+     */
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * 被合并到已有请求的调用次数
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+    
+    /**
+     * 成功的预热次数
+     */
+    private final AtomicLong warmups = new AtomicLong();
+    
     /**
      * 构造函数
      */
-    public OllamaService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    public OllamaService(OllamaHttpClients httpClients, GenerationCache generationCache,
+                         GenerationScheduler scheduler, OllamaHealthMonitor healthMonitor,
+                         PromptBuilder promptBuilder) {
+        this.httpClients = httpClients;
+        this.generationCache = generationCache;
+        this.scheduler = scheduler;
+        this.healthMonitor = healthMonitor;
+        this.promptBuilder = promptBuilder;
+        this.restTemplate = httpClients.getGenerationTemplate();
+        this.objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+    
+    @PostConstruct
+    public void init() {
+        timings = new GenerationTimings(coldThresholdMs);
+        if (numCtx > 0 || numPredict > 0) {
+            options = new OllamaOptions(numCtx > 0 ? numCtx : null, numPredict > 0 ? numPredict : null);
+        }
     }
     
     /**
@@ -62,28 +179,78 @@ public class OllamaService {
      * @return 模型生成的响应内容
      */
     public String generateContent(String prompt, String model) {
+        return generateContent(prompt, model, GenerationPriority.INTERACTIVE);
+    }
+    
+    /**
+     * 调用Ollama API生成内容（指定模型和优先级）
+     * @param prompt 提示词
+     * @param model 模型名称
+     * @param priority 排队优先级
+     * @return 模型生成的响应内容
+     * @throws GenerationRejectedException 生成队列已满
+     */
+    public String generateContent(String prompt, String model, GenerationPriority priority) {
+        return generateContent(prompt, model, priority, null);
+    }
+    
+    /**
+     * 调用Ollama API生成受JSON schema约束的内容
+     * @param prompt 提示词
+     * @param model 模型名称
+     * @param priority 排队优先级
+     * @param format 输出格式（JSON schema），为null时自由输出文本
+     * @return 模型生成的响应内容
+     * @throws GenerationRejectedException 生成队列已满
+     */
+    public String generateContent(String prompt, String model, GenerationPriority priority, JsonNode format) {
+        // 相同输入已生成过时直接读取缓存
+        String cacheKey = cacheKey(model, prompt, format);
+        String cached = generationCache.get(cacheKey);
+        if (cached != null) {
+            logger.info("命中生成缓存，模型：{}，响应长度：{}", model, cached.length());
+            return cached;
+        }
+        
+        return singleFlight(cacheKey,
+            () -> dispatch(priority, baseUrl -> requestContent(baseUrl, prompt, model, format, cacheKey), () -> true), null);
+    }
+    
+    /**
+     * 实际发送非流式生成请求并写入缓存
+     */
+    private String requestContent(String baseUrl, String prompt, String model, JsonNode format, String cacheKey) {
         try {
-            logger.info("调用Ollama API，模型：{}，提示词长度：{}", model, prompt.length());
+            logger.info("调用Ollama API，节点：{}，模型：{}，提示词长度：{}", baseUrl, model, prompt.length());
             
             // 构建请求
-            OllamaRequest request = new OllamaRequest(model, prompt, false);
+            Object request = buildRequest(prompt, model, false, format);
+            long start = System.nanoTime();
             
             // 设置请求头
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             
-            HttpEntity<OllamaRequest> entity = new HttpEntity<>(request, headers);
+            HttpEntity<Object> entity = new HttpEntity<>(request, headers);
             
             // 发送请求
-            String apiUrl = ollamaUrl + "/api/generate";
+            String apiUrl = baseUrl + apiPath();
             ResponseEntity<OllamaResponse> response = restTemplate.postForEntity(
                 apiUrl, entity, OllamaResponse.class);
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                OllamaResponse ollamaResponse = response.getBody();
+                OllamaResponse ollamaResponse = normalize(response.getBody());
+                recordPromptEval(ollamaResponse);
                 logger.info("Ollama API调用成功，响应长度：{}", 
                     ollamaResponse.getResponse() != null ? ollamaResponse.getResponse().length() : 0);
+                // 非流式请求看不到首token，用服务端的加载与提示词评估耗时近似
+                if (ollamaResponse.getLoad_duration() != null && ollamaResponse.getPrompt_eval_duration() != null) {
+                    long ttftNanos = ollamaResponse.getLoad_duration() + ollamaResponse.getPrompt_eval_duration();
+                    recordTiming(Math.min(ttftNanos / 1_000_000, (System.nanoTime() - start) / 1_000_000),
+                        ollamaResponse.getLoad_duration());
+                }
                 
+                generationCache.put(cacheKey, ollamaResponse.getResponse());
                 return ollamaResponse.getResponse();
             } else {
                 logger.error("Ollama API调用失败，状态码：{}", response.getStatusCode());
@@ -97,26 +264,452 @@ public class OllamaService {
     }
     
     /**
-     * 检查Ollama服务是否可用
-     * @return 是否可用
+     * 以流式模式调用Ollama API（stream: true），逐行解析NDJSON片段
+     * @param prompt 提示词
+     * @param onFragment 每收到一个片段时回调（在调用线程上执行）
+     * @return 拼接后的完整响应内容
      */
-    public boolean isServiceAvailable() {
+    public String generateContentStream(String prompt, Consumer<OllamaResponse> onFragment) {
+        return generateContentStream(prompt, defaultModel, onFragment);
+    }
+    
+    /**
+     * 以流式模式调用Ollama API（指定模型）
+     * @param prompt 提示词
+     * @param model 模型名称
+     * @param onFragment 每收到一个片段时回调（在调用线程上执行）
+     * @return 拼接后的完整响应内容
+     */
+    public String generateContentStream(String prompt, String model, Consumer<OllamaResponse> onFragment) {
+        // 命中缓存时把完整结果作为唯一的片段交付
+        String cacheKey = cacheKey(model, prompt, null);
+        String cached = generationCache.get(cacheKey);
+        if (cached != null) {
+            logger.info("命中生成缓存，模型：{}，响应长度：{}", model, cached.length());
+            OllamaResponse fragment = new OllamaResponse();
+            fragment.setModel(model);
+            fragment.setResponse(cached);
+            fragment.setDone(true);
+            onFragment.accept(fragment);
+            return cached;
+        }
+        
+        // 已经向调用方交付过片段后不能换节点重试，否则输出会重复
+        AtomicBoolean delivered = new AtomicBoolean();
+        Consumer<OllamaResponse> tracked = fragment -> {
+            delivered.set(true);
+            onFragment.accept(fragment);
+        };
+        return singleFlight(cacheKey, () -> dispatch(GenerationPriority.INTERACTIVE,
+            baseUrl -> requestContentStream(baseUrl, prompt, model, cacheKey, tracked),
+            () -> !delivered.get()), onFragment);
+    }
+    
+    /**
+     * 实际发送流式生成请求并写入缓存
+     */
+    private String requestContentStream(String baseUrl, String prompt, String model, String cacheKey,
+                                        Consumer<OllamaResponse> onFragment) {
         try {
-            String healthUrl = ollamaUrl + "/api/tags";
-            ResponseEntity<String> response = restTemplate.getForEntity(healthUrl, String.class);
-            return response.getStatusCode().is2xxSuccessful();
+            logger.info("流式调用Ollama API，节点：{}，模型：{}，提示词长度：{}", baseUrl, model, prompt.length());
+            
+            byte[] body = objectMapper.writeValueAsBytes(buildRequest(prompt, model, true, null));
+            long start = System.nanoTime();
+            String apiUrl = baseUrl + apiPath();
+            
+            String content = restTemplate.execute(apiUrl, HttpMethod.POST,
+                clientRequest -> {
+                    clientRequest.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    clientRequest.getBody().write(body);
+                },
+                clientResponse -> {
+                    StringBuilder builder = new StringBuilder();
+                    long firstTokenNanos = -1;
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(httpClients.streamingBody(clientResponse.getBody()), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.isBlank()) {
+                                continue;
+                            }
+                            JsonNode node = objectMapper.readTree(line);
+                            if (node.hasNonNull("error")) {
+                                // 服务端在流中报告的错误（如推理进程异常退出）属于节点故障
+                                throw new IOException(node.get("error").asText());
+                            }
+                            OllamaResponse fragment = normalize(objectMapper.treeToValue(node, OllamaResponse.class));
+                            if (fragment.getResponse() != null) {
+                                if (firstTokenNanos < 0 && !fragment.getResponse().isEmpty()) {
+                                    firstTokenNanos = System.nanoTime() - start;
+                                }
+                                builder.append(fragment.getResponse());
+                            }
+                            onFragment.accept(fragment);
+                            if (fragment.isDone()) {
+                                recordPromptEval(fragment);
+                                if (firstTokenNanos >= 0 && fragment.getLoad_duration() != null) {
+                                    recordTiming(firstTokenNanos / 1_000_000, fragment.getLoad_duration());
+                                }
+                                return builder.toString();
+                            }
+                        }
+                    }
+                    // 没有收到done片段说明连接中途断开，不能当作完整结果
+                    throw new IOException("流式响应提前结束");
+                });
+            
+            logger.info("Ollama流式调用完成，响应长度：{}", content != null ? content.length() : 0);
+            generationCache.put(cacheKey, content);
+            return content;
+            
         } catch (Exception e) {
-            logger.warn("Ollama服务不可用：{}", e.getMessage());
-            return false;
+            logger.error("流式调用Ollama API时发生错误", e);
+            throw new RuntimeException("调用Ollama API失败：" + e.getMessage(), e);
         }
     }
     
     /**
-     * 获取Ollama服务URL
+     * 经过熔断器和调度器发送请求：所有节点熔断时排队前即失败；获得执行名额后按最少进行中请求选择节点，
+     * 节点失败时换一个尚未失败的节点重试，请求结果反馈给该节点的熔断器
+     * @param priority 排队优先级
+     * @param request 以节点地址为参数的实际请求
+     * @param retryable 失败后是否还能换节点重试
+     */
+    private String dispatch(GenerationPriority priority, Function<String, String> request, BooleanSupplier retryable) {
+        healthMonitor.checkAvailable();
+        return scheduler.execute(priority, () -> {
+            List<OllamaEndpoint> failed = new ArrayList<>();
+            RuntimeException lastError = null;
+            while (true) {
+                OllamaEndpoint endpoint;
+                try {
+                    endpoint = healthMonitor.acquireEndpoint(failed);
+                } catch (OllamaUnavailableException e) {
+                    // 已经尝试过的节点都失败了，报告最后一次的真实错误
+                    throw lastError != null ? lastError : e;
+                }
+                
+                long start = System.nanoTime();
+                try {
+                    String content = request.apply(endpoint.getUrl());
+                    endpoint.recordSuccess((System.nanoTime() - start) / 1_000_000);
+                    return content;
+                } catch (RuntimeException e) {
+                    if (!isHostFailure(e)) {
+                        // 4xx等请求本身的错误换节点也不会成功，不计入熔断
+                        endpoint.release();
+                        throw e;
+                    }
+                    endpoint.recordFailure();
+                    failed.add(endpoint);
+                    lastError = e;
+                    if (!retryable.getAsBoolean()) {
+                        throw e;
+                    }
+                    logger.warn("节点{}生成失败，尝试其他节点：{}", endpoint.getUrl(), e.getMessage());
+                }
+            }
+        });
+    }
+    
+    /**
+     * 是否为节点故障（I/O错误、超时、5xx响应），只有节点故障才计入熔断并换节点重试
+     */
+    private static boolean isHostFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException) {
+                return false;
+            }
+            if (cause instanceof IOException || cause instanceof ResourceAccessException
+                    || cause instanceof HttpServerErrorException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 构建请求体：对话模式下把固定的规则前缀拆为system消息，其余内容作为user消息
+     * @param format 输出格式（JSON schema），为null时不约束
+     */
+    private Object buildRequest(String prompt, String model, boolean stream, JsonNode format) {
+        if (!chatEnabled) {
+            OllamaRequest request = new OllamaRequest(model, prompt, stream);
+            request.setKeepAlive(keepAlive);
+            request.setOptions(options);
+            request.setFormat(format);
+            return request;
+        }
+        
+        List<OllamaChatMessage> messages = new ArrayList<>();
+        String rules = promptBuilder.getDiaryAssistantRules();
+        if (prompt.startsWith(rules)) {
+            messages.add(new OllamaChatMessage("system", rules));
+            messages.add(new OllamaChatMessage("user", prompt.substring(rules.length()).strip()));
+        } else {
+            messages.add(new OllamaChatMessage("user", prompt));
+        }
+        OllamaChatRequest request = new OllamaChatRequest(model, messages, stream);
+        request.setKeepAlive(keepAlive);
+        request.setOptions(options);
+        request.setFormat(format);
+        return request;
+    }
+    
+    private String apiPath() {
+        return chatEnabled ? "/api/chat" : "/api/generate";
+    }
+    
+    /**
+     * 对话API的输出在message中，统一转存到response字段
+     */
+    private static OllamaResponse normalize(OllamaResponse response) {
+        if (response.getResponse() == null && response.getMessage() != null) {
+            response.setResponse(response.getMessage().getContent());
+        }
+        return response;
+    }
+    
+    /**
+     * 记录提示词评估的token数和耗时（前缀被复用时token数明显减少）
+     */
+    private void recordPromptEval(OllamaResponse response) {
+        if (response.getPrompt_eval_count() != null && response.getPrompt_eval_duration() != null) {
+            timings.recordPromptEval(response.getPrompt_eval_count(), response.getPrompt_eval_duration() / 1_000_000);
+        }
+    }
+    
+    /**
+     * 记录首token耗时并按模型是否需要加载分类
+     */
+    private void recordTiming(long ttftMs, long loadNanos) {
+        long loadMs = loadNanos / 1_000_000;
+        boolean cold = timings.record(ttftMs, loadMs);
+        logger.info("首token耗时：{}ms（{}，模型加载{}ms）", ttftMs, cold ? "冷启动" : "已预热", loadMs);
+    }
+    
+    /**
+     * 应用启动后预热模型
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (warmupOnStartup) {
+            warmUp();
+        }
+    }
+    
+    /**
+     * 日记会话开始时预热模型，用户写完时模型已在内存中
+     */
+    public void warmUpForSession() {
+        if (warmupOnSessionStart) {
+            warmUp();
+        }
+    }
+    
+    /**
+     * 在后台线程中向每个节点发送空提示词，让Ollama加载模型并按keep_alive保留
+     */
+    public void warmUp() {
+        for (String baseUrl : healthMonitor.getUrls()) {
+            if (!warming.add(baseUrl)) {
+                continue;
+            }
+            Thread thread = new Thread(() -> {
+                try {
+                    warmUp(baseUrl);
+                } finally {
+                    warming.remove(baseUrl);
+                }
+            }, "ollama-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+    
+    private void warmUp(String baseUrl) {
+        try {
+            Object request;
+            if (chatEnabled) {
+                // 对话模式下只发送system消息并只生成1个token，模型加载的同时评估并缓存规则前缀
+                OllamaChatRequest chatRequest = new OllamaChatRequest(defaultModel,
+                    List.of(new OllamaChatMessage("system", promptBuilder.getDiaryAssistantRules())), false);
+                chatRequest.setKeepAlive(keepAlive);
+                chatRequest.setOptions(new OllamaOptions(numCtx > 0 ? numCtx : null, 1));
+                request = chatRequest;
+            } else {
+                OllamaRequest generateRequest = new OllamaRequest(defaultModel, "", false);
+                generateRequest.setKeepAlive(keepAlive);
+                // 上下文窗口不同会让Ollama重新加载模型，预热必须使用与生成相同的参数
+                generateRequest.setOptions(options);
+                request = generateRequest;
+            }
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            
+            long start = System.nanoTime();
+            ResponseEntity<OllamaResponse> response = restTemplate.postForEntity(
+                baseUrl + apiPath(), new HttpEntity<>(request, headers), OllamaResponse.class);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            
+            Long loadNanos = response.getBody() != null ? response.getBody().getLoad_duration() : null;
+            logger.info("模型预热完成：{}，模型：{}，耗时{}ms，模型加载{}ms", baseUrl, defaultModel, elapsedMs,
+                loadNanos != null ? loadNanos / 1_000_000 : "未知");
+            warmups.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("模型预热失败：{}，{}", baseUrl, e.getMessage());
+        }
+    }
+    
+    /**
+     * 合并相同输入的并发请求：第一个调用方实际请求模型，其余调用方等待同一个结果
+     * @param key 缓存键（模型 + 提示词 + 参数）
+     * @param request 实际请求
+     * @param onFragment 流式调用方的片段回调，等待方在结果就绪后收到一个完整片段；非流式时为null
+     * @return 生成结果
+     */
+    private String singleFlight(String key, Supplier<String> request, Consumer<OllamaResponse> onFragment) {
+        CompletableFuture<String> own = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, own);
+        
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            logger.info("相同的生成请求正在进行，等待其结果");
+            String content;
+            try {
+                content = existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+            deliverWhole(content, onFragment);
+            return content;
+        }
+        
+        try {
+            // 调用方检查缓存之后、登记之前，上一个领头请求可能已经完成并移除了登记，此时结果已在缓存中
+            String cached = generationCache.get(key);
+            if (cached != null) {
+                logger.info("命中生成缓存（相同请求刚刚完成），响应长度：{}", cached.length());
+                own.complete(cached);
+                deliverWhole(cached, onFragment);
+                return cached;
+            }
+            
+            String content = request.get();
+            own.complete(content);
+            return content;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            // 结果已写入缓存后才移除，之后的相同请求直接命中缓存
+            inFlight.remove(key, own);
+        }
+    }
+    
+    /**
+     * 把完整结果作为唯一的片段交付给流式调用方
+     */
+    private static void deliverWhole(String content, Consumer<OllamaResponse> onFragment) {
+        if (onFragment != null) {
+            OllamaResponse fragment = new OllamaResponse();
+            fragment.setResponse(content);
+            fragment.setDone(true);
+            onFragment.accept(fragment);
+        }
+    }
+    
+    /**
+     * 生成缓存键：模型、提示词、生成参数、输出格式和所用API共同决定输出
+     */
+    private String cacheKey(String model, String prompt, JsonNode format) {
+        String parameters = options != null ? options.toString() : "";
+        if (format != null) {
+            parameters += ";format=" + format;
+        }
+        return GenerationCache.key(model, prompt, chatEnabled ? "chat;" + parameters : parameters);
+    }
+    
+    /**
+     * 检查Ollama服务是否可用（读取后台探测缓存的状态，不发起请求）
+     * @return 是否可用
+     */
+    public boolean isServiceAvailable() {
+        return healthMonitor.isAvailable();
+    }
+    
+    /**
+     * 获取健康状态和熔断器统计
+     * @return 可用状态、熔断器状态、探测和熔断次数
+     */
+    public Map<String, Object> getHealthStats() {
+        return healthMonitor.getStats();
+    }
+    
+    /**
+     * 获取HTTP连接池统计
+     * @return 已租用、空闲、等待中的连接数
+     */
+    public Map<String, Object> getHttpStats() {
+        return httpClients.getStats();
+    }
+    
+    /**
+     * 获取生成缓存统计
+     * @return 命中、未命中、淘汰次数和占用字节数，以及请求合并情况
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(generationCache.getStats());
+        stats.put("inFlight", inFlight.size());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+    
+    /**
+     * 获取生成调度统计
+     * @return 执行中、排队数以及各优先级的等待时间和拒绝次数
+     */
+    public Map<String, Object> getSchedulerStats() {
+        return scheduler.getStats();
+    }
+    
+    /**
+     * 获取首token耗时统计
+     * @return 冷、热两类的次数与耗时，以及预热次数
+     */
+    public Map<String, Object> getTimingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(timings.getStats());
+        stats.put("api", apiPath());
+        stats.put("warmups", warmups.get());
+        return stats;
+    }
+    
+    /**
+     * 获取Ollama服务URL（多个节点时以逗号分隔）
      * @return 服务URL
      */
     public String getOllamaUrl() {
-        return ollamaUrl;
+        return String.join(",", healthMonitor.getUrls());
+    }
+    
+    /**
+     * 获取上下文窗口大小
+     * @return token数，0表示使用服务端默认值
+     */
+    public int getNumCtx() {
+        return numCtx;
+    }
+    
+    /**
+     * 获取单次最多生成的token数
+     * @return token数，0表示不限制
+     */
+    public int getNumPredict() {
+        return numPredict;
     }
     
     /**
@@ -0,0 +1,14 @@
+package com.example.diary.service;
+
+/**
+ * 熔断期间拒绝生成请求
+ * 与队列已满一样属于可重试的拒绝，Web接口返回503
+ */
+public class OllamaUnavailableException extends GenerationRejectedException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public OllamaUnavailableException(String message) {
+        super(message);
+    }
+}
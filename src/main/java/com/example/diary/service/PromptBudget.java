@@ -0,0 +1,264 @@
+package com.example.diary.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 提示词的上下文窗口预算
+ * 按字符类别估算token数（中日韩字符约1个token，其余约4个字符1个token，偏保守）；
+ * 超出预算的长日记先分段摘要（map），再把分段摘要逐级合并（reduce），
+ * 保证每次调用的提示词都能放进模型的上下文窗口
+ */
+@Component
+public class PromptBudget {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptBudget.class);
+
+    /**
+     * 非中日韩字符平均每个token对应的字符数
+     */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    /**
+     * 为模板误差保留的token数
+     */
+    @Value("${diary.budget.reserve-tokens:256}")
+    private int reserveTokens;
+
+    /**
+     * 分段摘要同时提交的请求数（实际并发仍受生成调度器限制，不宜超过其队列容量）
+     */
+    @Value("${diary.budget.parallelism:2}")
+    private int parallelism;
+
+    private final OllamaService ollamaService;
+    private final PromptBuilder promptBuilder;
+
+    private ExecutorService mapExecutor;
+
+    private final AtomicLong condensed = new AtomicLong();
+    private final AtomicLong mapCalls = new AtomicLong();
+    private final AtomicLong reduceCalls = new AtomicLong();
+    private volatile long lastPromptTokens;
+
+    public PromptBudget(OllamaService ollamaService, PromptBuilder promptBuilder) {
+        this.ollamaService = ollamaService;
+        this.promptBuilder = promptBuilder;
+    }
+
+    @PostConstruct
+    public void init() {
+        mapExecutor = Executors.newFixedThreadPool(Math.max(parallelism, 1), r -> {
+            Thread thread = new Thread(r, "diary-budget-map");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 估算文本的token数
+     * @param text 文本
+     * @return 估算的token数
+     */
+    public static int estimateTokens(String text) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isIdeographic(codePoint)
+                    || Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HIRAGANA
+                    || Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.KATAKANA
+                    || Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HANGUL) {
+                cjk++;
+            } else {
+                other++;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return cjk + (other + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * 提示词可用的token数：上下文窗口减去生成长度和保留量
+     * @return token数，未配置上下文窗口时不限制
+     */
+    public int inputBudget() {
+        int numCtx = ollamaService.getNumCtx();
+        if (numCtx <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(numCtx - Math.max(ollamaService.getNumPredict(), 0) - reserveTokens, numCtx / 4);
+    }
+
+    /**
+     * 提示词是否在预算内
+     * @param prompt 提示词
+     * @return 是否在预算内
+     */
+    public boolean fits(String prompt) {
+        int tokens = estimateTokens(prompt);
+        lastPromptTokens = tokens;
+        return tokens <= inputBudget();
+    }
+
+    /**
+     * 把超出预算的记录压缩为一份摘要：分段摘要后逐级合并
+     * @param previousSummary 已有的滚动摘要，没有时为null
+     * @param entries 需要压缩的记录
+     * @param firstIndex 第一条记录在当天的序号（从1开始）
+     * @return 覆盖已有摘要和全部记录的摘要
+     */
+    public String condense(String previousSummary, List<String> entries, int firstIndex) {
+        condensed.incrementAndGet();
+        long start = System.currentTimeMillis();
+
+        // map：按预算切分原始记录，各段并行摘要
+        int entryBudget = inputBudget() - estimateTokens(promptBuilder.buildRollingSummaryPrompt(null, List.of(), 1));
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        int index = firstIndex;
+        for (List<String> chunk : split(entries, entryBudget)) {
+            int chunkFirstIndex = index;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                mapCalls.incrementAndGet();
+                return generate(promptBuilder.buildRollingSummaryPrompt(null, chunk, chunkFirstIndex));
+            }, mapExecutor));
+            index += chunk.size();
+        }
+
+        List<String> summaries = new ArrayList<>();
+        if (previousSummary != null) {
+            summaries.add(previousSummary);
+        }
+        summaries.addAll(joinAll(futures));
+        int mapped = futures.size();
+
+        // reduce：分段摘要逐级合并，直到只剩一份
+        int summaryBudget = inputBudget() - estimateTokens(promptBuilder.buildSummaryMergePrompt(List.of()));
+        while (summaries.size() > 1) {
+            List<List<String>> groups = split(summaries, summaryBudget);
+            if (groups.size() == summaries.size()) {
+                // 每份摘要都单独占满预算，无法继续合并，按时间顺序各取一部分
+                groups = List.of(truncateAll(summaries, summaryBudget));
+            }
+            List<CompletableFuture<String>> merges = new ArrayList<>();
+            for (List<String> group : groups) {
+                merges.add(CompletableFuture.supplyAsync(() -> {
+                    if (group.size() == 1) {
+                        return group.get(0);
+                    }
+                    reduceCalls.incrementAndGet();
+                    return generate(promptBuilder.buildSummaryMergePrompt(group));
+                }, mapExecutor));
+            }
+            summaries = joinAll(merges);
+        }
+
+        logger.info("长日记已分段压缩：{}条记录分为{}段，耗时{}ms",
+            entries.size(), mapped, System.currentTimeMillis() - start);
+        return summaries.get(0);
+    }
+
+    /**
+     * 按token预算把文本顺序切分为若干组；单条超出预算时截断后单独成组
+     */
+    private List<List<String>> split(List<String> texts, int budget) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int used = 0;
+        for (String text : texts) {
+            // 每条记录额外计入序号和换行
+            int tokens = estimateTokens(text) + 4;
+            if (!current.isEmpty() && used + tokens > budget) {
+                groups.add(current);
+                current = new ArrayList<>();
+                used = 0;
+            }
+            current.add(tokens > budget ? truncate(text, budget - 4) : text);
+            used += Math.min(tokens, budget);
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    private List<String> truncateAll(List<String> texts, int budget) {
+        List<String> truncated = new ArrayList<>();
+        for (String text : texts) {
+            truncated.add(truncate(text, budget / texts.size() - 8));
+        }
+        return truncated;
+    }
+
+    /**
+     * 把文本截断到估算token数不超过预算
+     */
+    private static String truncate(String text, int budget) {
+        if (budget <= 0) {
+            return "";
+        }
+        int end = text.length();
+        while (end > 0 && estimateTokens(text.substring(0, end)) > budget) {
+            end = Math.max(0, end - Math.max(1, (end - budget) / 2));
+        }
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private String generate(String prompt) {
+        return ollamaService.generateContent(prompt, ollamaService.getDefaultModel(), GenerationPriority.INTERACTIVE).trim();
+    }
+
+    private static List<String> joinAll(List<CompletableFuture<String>> futures) {
+        List<String> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<String> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * 获取预算统计
+     * @return 预算大小、最近一次提示词的估算token数、压缩次数和分段调用次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int budget = inputBudget();
+        stats.put("inputBudget", budget == Integer.MAX_VALUE ? null : budget);
+        stats.put("numPredict", ollamaService.getNumPredict());
+        stats.put("lastPromptTokens", lastPromptTokens);
+        stats.put("condensed", condensed.get());
+        stats.put("mapCalls", mapCalls.get());
+        stats.put("reduceCalls", reduceCalls.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mapExecutor.shutdownNow();
+    }
+}
@@ -53,11 +53,227 @@ public class PromptBuilder {
         promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
         
         // 添加原始记录
+        appendEntries(promptBuilder, entries);
+        
+        appendOutputInstructions(promptBuilder);
+        
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建基于滚动摘要的日记处理Prompt：较早的记录已压缩为摘要，只附上其后的新记录
+     * @param rollingSummary 较早记录的滚动摘要
+     * @param recentEntries 摘要之后的新记录（可以为空）
+     * @param firstIndex 第一条新记录在当天的序号（从1开始）
+     * @return 完整的Prompt字符串
+     */
+    public String buildDiaryProcessingPrompt(String rollingSummary, List<String> recentEntries, int firstIndex) {
+        StringBuilder promptBuilder = new StringBuilder();
+        
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        
+        appendSummarizedEntries(promptBuilder, rollingSummary, recentEntries, firstIndex);
+        
+        appendOutputInstructions(promptBuilder);
+        
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建只生成其中一个部分的Prompt（各部分并行生成时使用）
+     * @param section 要生成的部分
+     * @param entries 当天的日记条目内容列表
+     * @return 完整的Prompt字符串
+     */
+    public String buildSectionPrompt(DiarySection section, List<String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("日记条目不能为空");
+        }
+        
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        appendEntries(promptBuilder, entries);
+        appendSectionInstructions(promptBuilder, section);
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建只生成其中一个部分、基于摘要的Prompt
+     * @param section 要生成的部分
+     * @param rollingSummary 较早记录的摘要
+     * @param recentEntries 摘要之后的新记录（可以为空）
+     * @param firstIndex 第一条新记录在当天的序号（从1开始）
+     * @return 完整的Prompt字符串
+     */
+    public String buildSectionPrompt(DiarySection section, String rollingSummary, List<String> recentEntries,
+                                     int firstIndex) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        appendSummarizedEntries(promptBuilder, rollingSummary, recentEntries, firstIndex);
+        appendSectionInstructions(promptBuilder, section);
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建以JSON输出三个部分的日记处理Prompt（配合JSON schema格式约束使用）
+     * @param entries 当天的日记条目内容列表
+     * @return 完整的Prompt字符串
+     */
+    public String buildStructuredPrompt(List<String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("日记条目不能为空");
+        }
+        
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        appendEntries(promptBuilder, entries);
+        appendStructuredInstructions(promptBuilder);
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建以JSON输出三个部分、基于摘要的日记处理Prompt
+     * @param rollingSummary 较早记录的摘要
+     * @param recentEntries 摘要之后的新记录（可以为空）
+     * @param firstIndex 第一条新记录在当天的序号（从1开始）
+     * @return 完整的Prompt字符串
+     */
+    public String buildStructuredPrompt(String rollingSummary, List<String> recentEntries, int firstIndex) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        appendSummarizedEntries(promptBuilder, rollingSummary, recentEntries, firstIndex);
+        appendStructuredInstructions(promptBuilder);
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建修复Prompt：把格式不正确的输出原样转换为JSON，不重新整理内容
+     * @param malformedOutput 无法解析的模型输出
+     * @return 完整的Prompt字符串
+     */
+    public String buildRepairPrompt(String malformedOutput) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("下面是一份日记整理结果，但格式不正确。请不要改写或增删内容，只把它转换为JSON：\n");
+        promptBuilder.append("{\"diary\": 完整版日记, \"summary\": [五点条列总结，每点一个字符串], \"insights\": 洞察与建议}\n");
+        promptBuilder.append("缺少的部分用空字符串表示。只输出JSON。\n\n");
+        promptBuilder.append(malformedOutput.trim());
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建滚动摘要Prompt：把已有摘要与新记录合并为新的摘要
+     * @param previousSummary 已有摘要，没有时为null
+     * @param newEntries 新记录
+     * @param firstIndex 第一条新记录在当天的序号（从1开始）
+     * @return 完整的Prompt字符串
+     */
+    public String buildRollingSummaryPrompt(String previousSummary, List<String> newEntries, int firstIndex) {
+        StringBuilder promptBuilder = new StringBuilder();
+        
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        
+        if (previousSummary != null) {
+            promptBuilder.append("以下是我今天较早记录的整理摘要：\n");
+            promptBuilder.append(previousSummary.trim()).append("\n\n");
+        }
+        promptBuilder.append("以下是新的原始记录（按时间顺序）：\n");
+        for (int i = 0; i < newEntries.size(); i++) {
+            promptBuilder.append(firstIndex + i).append(".  ").append(newEntries.get(i)).append("\n");
+        }
+        
+        promptBuilder.append("\n现在请把").append(previousSummary != null ? "摘要与新记录" : "这些记录")
+            .append("合并为一份按时间顺序的整理摘要，供稍后撰写完整日记使用：\n");
+        appendSummaryInstructions(promptBuilder);
+        
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 构建分段摘要的合并Prompt（长日记分段摘要后的归并步骤）
+     * @param partSummaries 按时间顺序排列的分段摘要
+     * @return 完整的Prompt字符串
+     */
+    public String buildSummaryMergePrompt(List<String> partSummaries) {
+        StringBuilder promptBuilder = new StringBuilder();
+        
+        promptBuilder.append(DIARY_ASSISTANT_RULES).append("\n\n");
+        
+        promptBuilder.append("以下是我今天的记录按时间顺序分段整理出的摘要：\n");
+        for (int i = 0; i < partSummaries.size(); i++) {
+            promptBuilder.append("第").append(i + 1).append("段：\n").append(partSummaries.get(i).trim()).append("\n\n");
+        }
+        
+        promptBuilder.append("现在请把这些分段摘要合并为一份按时间顺序的整理摘要，供稍后撰写完整日记使用：\n");
+        appendSummaryInstructions(promptBuilder);
+        
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * 追加全部原始记录
+     */
+    private void appendEntries(StringBuilder promptBuilder, List<String> entries) {
         promptBuilder.append("以下是我今天的全部原始记录（按时间顺序）：\n");
         for (int i = 0; i < entries.size(); i++) {
             promptBuilder.append(i + 1).append(".  ").append(entries.get(i)).append("\n");
         }
+    }
+    
+    /**
+     * 追加较早记录的摘要以及其后的原始记录
+     */
+    private void appendSummarizedEntries(StringBuilder promptBuilder, String rollingSummary,
+                                         List<String> recentEntries, int firstIndex) {
+        promptBuilder.append("以下是我今天第1至").append(firstIndex - 1)
+            .append("条原始记录的整理摘要（已忠实保留其中的事实、想法与感受）：\n");
+        promptBuilder.append(rollingSummary.trim()).append("\n\n");
         
+        if (!recentEntries.isEmpty()) {
+            promptBuilder.append("以下是之后的原始记录（按时间顺序）：\n");
+            for (int i = 0; i < recentEntries.size(); i++) {
+                promptBuilder.append(firstIndex + i).append(".  ").append(recentEntries.get(i)).append("\n");
+            }
+        }
+    }
+    
+    /**
+     * 追加单个部分的任务指令
+     */
+    private void appendSectionInstructions(StringBuilder promptBuilder, DiarySection section) {
+        promptBuilder.append("\n现在请根据规则，只完成：").append(section.getTitle()).append("\n");
+        promptBuilder.append("\n请直接输出这一部分的内容，不要输出标题和其他部分，要求如下：\n");
+        promptBuilder.append(section.getTemplate());
+    }
+    
+    /**
+     * 追加JSON输出的任务指令
+     */
+    private void appendStructuredInstructions(StringBuilder promptBuilder) {
+        promptBuilder.append("\n现在请根据规则，完成完整版日记、五点条列总结、洞察与建议，并以JSON输出：\n");
+        promptBuilder.append("{\"diary\": \"...\", \"summary\": [\"...\", \"...\", \"...\", \"...\", \"...\"], \"insights\": \"...\"}\n");
+        promptBuilder.append("\n各字段要求：\n");
+        promptBuilder.append("- diary（").append(DiarySection.DIARY.getTitle()).append("）：")
+            .append(DiarySection.DIARY.getTemplate()).append("\n");
+        promptBuilder.append("- summary（").append(DiarySection.SUMMARY.getTitle()).append("，五个字符串，不带序号）：\n")
+            .append(DiarySection.SUMMARY.getTemplate()).append("\n");
+        promptBuilder.append("- insights（").append(DiarySection.INSIGHTS.getTitle()).append("）：")
+            .append(DiarySection.INSIGHTS.getTemplate()).append("\n");
+        promptBuilder.append("\n只输出JSON，不要输出其他内容。");
+    }
+    
+    /**
+     * 追加摘要的忠实性要求
+     */
+    private void appendSummaryInstructions(StringBuilder promptBuilder) {
+        promptBuilder.append("- 保留所有事实、行为、想法、愿望、感谢的事和待办事项，以及我表达的情绪\n");
+        promptBuilder.append("- 不得添加任何我未提及的内容，不做分析和建议\n");
+        promptBuilder.append("- 尽量简洁，只输出摘要正文，不要标题和额外说明\n");
+    }
+    
+    /**
+     * 追加任务指令和输出格式要求
+     */
+    private void appendOutputInstructions(StringBuilder promptBuilder) {
         // 添加任务指令
         promptBuilder.append("\n现在请根据规则，完成：\n");
         promptBuilder.append("1）完整版日记\n");
@@ -66,19 +282,11 @@ public class PromptBuilder {
         
         // 添加严格的输出格式要求
         promptBuilder.append("\n请严格按照以下格式输出，不要添加任何额外内容：\n");
-        promptBuilder.append("=== 完整版日记 ===\n");
-        promptBuilder.append("[将当日全部记录整合为一篇结构清晰、表达更成熟、语言自然流畅的日记。不得添加任何我未提及的事实、行为或情绪。不得拔高、不合理美化，也不得弱化原有感受。保留第一人称与真实语气。]\n\n");
-        promptBuilder.append("=== 五点条列总结 ===\n");
-        promptBuilder.append("1. [今天发生了什么 / 我的整体状态]\n");
-        promptBuilder.append("2. [今天的灵感或重要想法]\n");
-        promptBuilder.append("3. [我表达过的积极愿望]\n");
-        promptBuilder.append("4. [今天值得感谢的事]\n");
-        promptBuilder.append("5. [未完成或隐含的待办事项]\n\n");
-        promptBuilder.append("=== 洞察与建议 ===\n");
-        promptBuilder.append("[以心理学专业视角 + 人生导师式语气进行分析。重点放在：情绪模式、行为倾向、内在需求或潜在压力。提供温和、具体、不说教的建议或鼓励。不进行病理化判断，不贴标签。]\n\n");
+        for (DiarySection section : DiarySection.values()) {
+            promptBuilder.append("=== ").append(section.getTitle()).append(" ===\n");
+            promptBuilder.append(section.getTemplate()).append("\n\n");
+        }
         promptBuilder.append("重要提示：请确保每个部分之间用空行分隔，不要重复标题，严格按照格式输出。");
-        
-        return promptBuilder.toString();
     }
     
     /**
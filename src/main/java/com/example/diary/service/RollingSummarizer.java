@@ -0,0 +1,257 @@
+package com.example.diary.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.diary.model.DiarySession;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 记录期间的滚动摘要
+ * 用户记录时，每累计一定条数或经过一定时间，就在后台以低优先级把已有摘要和新记录合并为新的摘要；
+ * 结束日记时只需把这份较短的摘要与其后的最新记录一起交给模型，提示词长度不再随记录条数线性增长
+ */
+@Component
+public class RollingSummarizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RollingSummarizer.class);
+
+    /**
+     * 是否启用滚动摘要
+     */
+    @Value("${diary.rolling-summary.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 累计多少条未摘要的记录后触发一次摘要
+     */
+    @Value("${diary.rolling-summary.every-entries:8}")
+    private int everyEntries;
+
+    /**
+     * 距上次摘要超过多少分钟且有新记录时触发一次摘要
+     */
+    @Value("${diary.rolling-summary.interval-minutes:10}")
+    private long intervalMinutes;
+
+    private final OllamaService ollamaService;
+    private final PromptBuilder promptBuilder;
+
+    /**
+     * 当前会话的摘要状态（同一时间只有一个活跃会话）
+     */
+    private RollingState state;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong entriesSummarized = new AtomicLong();
+
+    private ScheduledExecutorService worker;
+
+    public RollingSummarizer(OllamaService ollamaService, PromptBuilder promptBuilder) {
+        this.ollamaService = ollamaService;
+        this.promptBuilder = promptBuilder;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "diary-rolling-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 按分钟检查时间触发条件；摘要任务本身也在这个线程上执行，同一时间最多一次
+        worker.scheduleWithFixedDelay(this::checkInterval, 1, 1, TimeUnit.MINUTES);
+        logger.info("滚动摘要已启用：每{}条记录或每{}分钟", everyEntries, intervalMinutes);
+    }
+
+    /**
+     * 开始跟踪一个会话（新建或恢复时调用）
+     * @param session 日记会话
+     */
+    public synchronized void track(DiarySession session) {
+        if (!enabled) {
+            return;
+        }
+        state = new RollingState(session);
+        state.entries.addAll(session.getEntryContents());
+        submitIfDue(false);
+    }
+
+    /**
+     * 记录一条新内容，达到条数阈值时提交后台摘要
+     * @param session 日记会话
+     * @param content 记录内容
+     */
+    public synchronized void onEntryRecorded(DiarySession session, String content) {
+        if (!enabled) {
+            return;
+        }
+        if (state == null || state.session != session) {
+            track(session);
+            return;
+        }
+        state.entries.add(content);
+        submitIfDue(false);
+    }
+
+    /**
+     * 获取会话当前的滚动摘要
+     * @param session 日记会话
+     * @return 滚动摘要，没有时返回null
+     */
+    public synchronized RollingSummary current(DiarySession session) {
+        if (state == null || state.session != session || state.summary == null) {
+            return null;
+        }
+        return new RollingSummary(state.summary, state.covered);
+    }
+
+    /**
+     * 记录一次结束日记时使用了滚动摘要
+     * @param summary 使用的滚动摘要
+     */
+    public void recordMerge(RollingSummary summary) {
+        merges.incrementAndGet();
+        entriesSummarized.addAndGet(summary.coveredEntries());
+    }
+
+    /**
+     * 会话结束后丢弃其摘要状态
+     * @param session 日记会话
+     */
+    public synchronized void forget(DiarySession session) {
+        if (state != null && state.session == session) {
+            state = null;
+        }
+    }
+
+    private synchronized void checkInterval() {
+        submitIfDue(true);
+    }
+
+    /**
+     * 满足触发条件且没有进行中的摘要时提交任务（调用方持有锁）
+     * @param byInterval 是否按时间条件检查
+     */
+    private void submitIfDue(boolean byInterval) {
+        if (state == null || state.running) {
+            return;
+        }
+        int pending = state.entries.size() - state.covered;
+        if (pending <= 0) {
+            return;
+        }
+        boolean due = pending >= everyEntries
+            || (byInterval && System.currentTimeMillis() - state.lastRunAt >= TimeUnit.MINUTES.toMillis(intervalMinutes));
+        if (!due) {
+            return;
+        }
+
+        RollingState target = state;
+        String previous = target.summary;
+        int firstIndex = target.covered + 1;
+        List<String> newEntries = new ArrayList<>(target.entries.subList(target.covered, target.entries.size()));
+        target.running = true;
+        worker.execute(() -> summarize(target, previous, newEntries, firstIndex));
+    }
+
+    /**
+     * 在后台线程上生成新的滚动摘要
+     */
+    private void summarize(RollingState target, String previous, List<String> newEntries, int firstIndex) {
+        runs.incrementAndGet();
+        long start = System.currentTimeMillis();
+        String summary = null;
+        try {
+            String prompt = promptBuilder.buildRollingSummaryPrompt(previous, newEntries, firstIndex);
+            summary = ollamaService.generateContent(prompt, ollamaService.getDefaultModel(),
+                GenerationPriority.BACKGROUND).trim();
+            logger.info("滚动摘要已更新：覆盖{}条记录，耗时{}ms",
+                firstIndex - 1 + newEntries.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 失败时保留原摘要，等下一个时间窗口再试
+            failures.incrementAndGet();
+            logger.warn("生成滚动摘要失败：{}", e.getMessage());
+        }
+
+        synchronized (this) {
+            target.running = false;
+            target.lastRunAt = System.currentTimeMillis();
+            if (summary != null && !summary.isEmpty()) {
+                target.summary = summary;
+                target.covered = firstIndex - 1 + newEntries.size();
+            }
+            if (state == target && summary != null) {
+                // 摘要期间又积累了足够的记录时立即继续
+                submitIfDue(false);
+            }
+        }
+    }
+
+    /**
+     * 获取滚动摘要统计
+     * @return 摘要次数、失败次数、结束时使用摘要的次数、当前覆盖的记录数等
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("runs", runs.get());
+        stats.put("failures", failures.get());
+        stats.put("merges", merges.get());
+        stats.put("entriesSummarized", entriesSummarized.get());
+        stats.put("running", state != null && state.running);
+        stats.put("entries", state != null ? state.entries.size() : 0);
+        stats.put("covered", state != null ? state.covered : 0);
+        stats.put("summaryLength", state != null && state.summary != null ? state.summary.length() : 0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    /**
+     * 滚动摘要
+     * @param text 摘要正文
+     * @param coveredEntries 摘要覆盖的前若干条记录数
+     */
+    public record RollingSummary(String text, int coveredEntries) {
+    }
+
+    /**
+     * 单个会话的摘要状态（由外层锁保护）
+     */
+    private static class RollingState {
+        private final DiarySession session;
+        private final List<String> entries = new ArrayList<>();
+        private String summary;
+        private int covered;
+        private long lastRunAt = System.currentTimeMillis();
+        private boolean running;
+
+        RollingState(DiarySession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.diary.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 分部分并行生成
+ * 完整版日记、五点条列总结、洞察与建议各用一个提示词同时请求模型，
+ * 总耗时取决于最慢的部分而不是三者之和（需要Ollama端 OLLAMA_NUM_PARALLEL &gt; 1，
+ * 且 ollama.scheduler.max-concurrency 与之一致）
+ */
+@Component
+public class SectionGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SectionGenerator.class);
+
+    /**
+     * 是否启用分部分并行生成
+     */
+    @Value("${diary.generation.parallel-sections:false}")
+    private boolean enabled;
+
+    /**
+     * 是否启用结构化输出（与分部分并行生成互斥，同时启用时只检查并提示）
+     */
+    @Value("${diary.generation.structured-output:false}")
+    private boolean structuredOutput;
+
+    private final OllamaService ollamaService;
+
+    private ExecutorService executor;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalWallMs = new AtomicLong();
+    private final AtomicLong totalSectionMs = new AtomicLong();
+    private final Map<DiarySection, Long> lastSectionMs = new EnumMap<>(DiarySection.class);
+
+    public SectionGenerator(OllamaService ollamaService) {
+        this.ollamaService = ollamaService;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        // 每个部分各占一个线程，调用线程只负责等待，任一部分失败都能立即感知
+        executor = Executors.newFixedThreadPool(DiarySection.values().length, r -> {
+            Thread thread = new Thread(r, "diary-section");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("分部分并行生成已启用");
+        if (structuredOutput) {
+            logger.warn("diary.generation.parallel-sections 与 diary.generation.structured-output 同时启用，"
+                + "结束日记时使用分部分并行生成，结构化输出不生效");
+        }
+    }
+
+    /**
+     * 是否启用分部分并行生成
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 并行生成三个部分；任一部分失败时立即取消其余部分（中断排队等待并释放调度名额）后抛出
+     * @param promptFor 各部分的提示词
+     * @param onToken 完整版日记的输出片段回调（在生成线程上执行），为null时使用非流式调用
+     * @return 各部分的内容
+     * @throws GenerationRejectedException 生成队列已满
+     */
+    public Map<DiarySection, String> generate(Function<DiarySection, String> promptFor, Consumer<String> onToken) {
+        long start = System.currentTimeMillis();
+        String model = ollamaService.getDefaultModel();
+
+        CompletionService<DiarySection> completion = new ExecutorCompletionService<>(executor);
+        Map<DiarySection, String> results = new EnumMap<>(DiarySection.class);
+        List<Future<DiarySection>> futures = new ArrayList<>();
+        for (DiarySection section : DiarySection.values()) {
+            String prompt = promptFor.apply(section);
+            Supplier<String> generation = section == DiarySection.DIARY && onToken != null
+                ? () -> ollamaService.generateContentStream(prompt, model, fragment -> {
+                    if (fragment.getResponse() != null && !fragment.getResponse().isEmpty()) {
+                        onToken.accept(fragment.getResponse());
+                    }
+                })
+                : () -> ollamaService.generateContent(prompt, model);
+            futures.add(completion.submit(() -> {
+                String content = clean(section, timed(section, generation));
+                synchronized (results) {
+                    results.put(section, content);
+                }
+                return section;
+            }));
+        }
+
+        try {
+            // 按完成顺序等待，先失败的部分立即暴露，而不是等完整版日记生成完
+            for (int i = 0; i < futures.size(); i++) {
+                completion.take().get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("分部分生成失败：" + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("分部分生成被中断", e);
+        }
+
+        long wallMs = System.currentTimeMillis() - start;
+        runs.incrementAndGet();
+        totalWallMs.addAndGet(wallMs);
+        logger.info("三个部分并行生成完成，耗时{}ms", wallMs);
+        synchronized (results) {
+            return new EnumMap<>(results);
+        }
+    }
+
+    /**
+     * 执行并记录单个部分的耗时
+     */
+    private String timed(DiarySection section, Supplier<String> generation) {
+        long start = System.currentTimeMillis();
+        String content = generation.get();
+        long elapsedMs = System.currentTimeMillis() - start;
+        totalSectionMs.addAndGet(elapsedMs);
+        synchronized (lastSectionMs) {
+            lastSectionMs.put(section, elapsedMs);
+        }
+        return content;
+    }
+
+    /**
+     * 去掉模型可能重复输出的标题
+     */
+    private static String clean(DiarySection section, String content) {
+        String result = content == null ? "" : content.trim();
+        int lineEnd = result.indexOf('\n');
+        String firstLine = lineEnd >= 0 ? result.substring(0, lineEnd) : result;
+        if (firstLine.contains(section.getTitle()) && firstLine.length() <= section.getTitle().length() + 10) {
+            result = lineEnd >= 0 ? result.substring(lineEnd + 1).trim() : "";
+        }
+        return result.isEmpty() ? "无内容" : result;
+    }
+
+    /**
+     * 获取并行生成统计
+     * @return 次数、平均总耗时、各部分耗时之和的平均值以及最近一次各部分耗时
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = runs.get();
+        stats.put("enabled", enabled);
+        stats.put("runs", count);
+        stats.put("avgWallMs", count > 0 ? totalWallMs.get() / count : 0);
+        stats.put("avgSectionSumMs", count > 0 ? totalSectionMs.get() / count : 0);
+        Map<String, Long> last = new LinkedHashMap<>();
+        synchronized (lastSectionMs) {
+            lastSectionMs.forEach((section, ms) -> last.put(section.name(), ms));
+        }
+        stats.put("lastSectionMs", last);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
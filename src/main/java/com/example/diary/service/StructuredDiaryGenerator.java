@@ -0,0 +1,246 @@
+package com.example.diary.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 结构化输出生成
+ * 通过Ollama的 format（JSON schema）约束模型直接输出三个字段，用流式Jackson解析读取；
+ * 解析失败时只发起一次把原输出转换为JSON的修复请求，而不是重新生成整篇日记。
+ * 同时统计文本模式和结构化模式的解析失败率
+ */
+@Component
+public class StructuredDiaryGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StructuredDiaryGenerator.class);
+
+    /**
+     * 三个部分的JSON schema
+     */
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "diary": {"type": "string"},
+            "summary": {"type": "array", "items": {"type": "string"}, "minItems": 5, "maxItems": 5},
+            "insights": {"type": "string"}
+          },
+          "required": ["diary", "summary", "insights"]
+        }
+        """;
+
+    /**
+     * 是否启用结构化输出
+     */
+    @Value("${diary.generation.structured-output:false}")
+    private boolean enabled;
+
+    private final OllamaService ollamaService;
+    private final PromptBuilder promptBuilder;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonNode schema;
+
+    private final AtomicLong structuredParses = new AtomicLong();
+    private final AtomicLong structuredFailures = new AtomicLong();
+    private final AtomicLong repairs = new AtomicLong();
+    private final AtomicLong repairFailures = new AtomicLong();
+    private final AtomicLong textParses = new AtomicLong();
+    private final AtomicLong textFailures = new AtomicLong();
+
+    public StructuredDiaryGenerator(OllamaService ollamaService, PromptBuilder promptBuilder) {
+        this.ollamaService = ollamaService;
+        this.promptBuilder = promptBuilder;
+        try {
+            this.schema = objectMapper.readTree(SCHEMA);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 是否启用结构化输出
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 按JSON schema生成并解析三个部分，解析失败时发起一次修复
+     * @param prompt 结构化输出的提示词
+     * @return 三个部分的内容；修复后仍无法解析时不含任何字段，由调用方按文本格式解析原输出
+     * @throws GenerationRejectedException 生成队列已满
+     */
+    public StructuredDiary generate(String prompt) {
+        String model = ollamaService.getDefaultModel();
+        String output = ollamaService.generateContent(prompt, model, GenerationPriority.INTERACTIVE, schema);
+
+        structuredParses.incrementAndGet();
+        StructuredDiary diary = parse(output);
+        if (diary != null && diary.isComplete()) {
+            return diary;
+        }
+        structuredFailures.incrementAndGet();
+        logger.warn("结构化输出解析失败，发起修复请求，原输出长度：{}", output != null ? output.length() : 0);
+
+        // 修复只做格式转换，提示词短且不重新整理内容
+        repairs.incrementAndGet();
+        String repaired = ollamaService.generateContent(promptBuilder.buildRepairPrompt(output != null ? output : ""),
+            model, GenerationPriority.INTERACTIVE, schema);
+        StructuredDiary fixed = parse(repaired);
+        if (fixed == null || !fixed.isParsed()) {
+            repairFailures.incrementAndGet();
+            logger.warn("修复后仍无法解析结构化输出");
+            return diary != null ? diary : new StructuredDiary(null, List.of(), null, output != null ? output : "");
+        }
+        return fixed;
+    }
+
+    /**
+     * 流式解析模型输出的JSON（容忍代码块标记和未知字段）
+     * @param output 模型输出
+     * @return 解析结果，不是合法JSON对象时返回null
+     */
+    StructuredDiary parse(String output) {
+        if (output == null) {
+            return null;
+        }
+        int start = output.indexOf('{');
+        int end = output.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+
+        String diary = null;
+        List<String> summary = new ArrayList<>();
+        String insights = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(output.substring(start, end + 1))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "diary" -> diary = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "insights" -> insights = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "summary" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                                    summary.add(parser.getText());
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        } else if (value == JsonToken.VALUE_STRING) {
+                            summary.add(parser.getText());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("结构化输出不是合法JSON：{}", e.getMessage());
+            return null;
+        }
+        return new StructuredDiary(diary, summary, insights, output);
+    }
+
+    /**
+     * 记录一次文本模式（按分隔符）解析的结果
+     * @param success 是否按格式解析成功
+     */
+    public void recordTextParse(boolean success) {
+        textParses.incrementAndGet();
+        if (!success) {
+            textFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取解析统计
+     * @return 文本模式和结构化模式的解析次数、失败次数与失败率，以及修复次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("textParses", textParses.get());
+        stats.put("textFailures", textFailures.get());
+        stats.put("textFailureRate", rate(textFailures.get(), textParses.get()));
+        stats.put("structuredParses", structuredParses.get());
+        stats.put("structuredFailures", structuredFailures.get());
+        stats.put("structuredFailureRate", rate(structuredFailures.get(), structuredParses.get()));
+        stats.put("repairs", repairs.get());
+        stats.put("repairFailures", repairFailures.get());
+        return stats;
+    }
+
+    private static double rate(long failures, long total) {
+        return total > 0 ? Math.round(failures * 1000.0 / total) / 1000.0 : 0;
+    }
+
+    /**
+     * 结构化输出的三个部分
+     * @param diary 完整版日记
+     * @param summaryItems 五点条列总结
+     * @param insights 洞察与建议
+     * @param rawOutput 模型的原始输出
+     */
+    public record StructuredDiary(String diary, List<String> summaryItems, String insights, String rawOutput) {
+
+        /**
+         * 是否解析出了至少一个部分
+         * @return 是否解析出内容
+         */
+        public boolean isParsed() {
+            return (diary != null && !diary.isBlank()) || !summaryItems.isEmpty()
+                || (insights != null && !insights.isBlank());
+        }
+
+        /**
+         * 三个部分是否都有内容
+         * @return 是否完整
+         */
+        public boolean isComplete() {
+            return diary != null && !diary.isBlank() && !summaryItems.isEmpty()
+                && insights != null && !insights.isBlank();
+        }
+
+        /**
+         * 按条列格式输出总结（去掉模型自带的序号后重新编号）
+         * @return 总结文本
+         */
+        public String formattedSummary() {
+            StringBuilder builder = new StringBuilder();
+            int index = 1;
+            for (String item : summaryItems) {
+                String text = item.trim().replaceFirst("^\\d+\\s*[.、)）]\\s*", "");
+                if (text.isEmpty()) {
+                    continue;
+                }
+                if (builder.length() > 0) {
+                    builder.append("\n");
+                }
+                builder.append(index++).append(". ").append(text);
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.diary.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * DiarySearchIndex 的测试：启动时重放带有损坏记录的日志
+ */
+@SpringBootTest(classes = {DiarySearchIndex.class, AtomicFileWriter.class})
+class DiarySearchIndexTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    @Autowired
+    private DiarySearchIndex searchIndex;
+
+    @DynamicPropertySource
+    static void dataProperties(DynamicPropertyRegistry registry) {
+        registry.add("diary.data.directory", dataDirectory::toString);
+    }
+
+    /**
+     * 中间一条记录只写了一半（写入中途失败后又追加了新记录）
+     */
+    @BeforeAll
+    static void writeLog() throws IOException {
+        Path log = dataDirectory.resolve("index").resolve("search_index.log");
+        Files.createDirectories(log.getParent());
+        Files.writeString(log, String.join("\n",
+            "{\"date\":\"2020-01-01\",\"version\":1,\"terms\":{\"苹果\":2}}",
+            "{\"date\":\"2020-01-02\",\"version\":2,\"ter",
+            "{\"date\":\"2020-01-03\",\"version\":3,\"terms\":{\"香蕉\":1}}",
+            "{\"date\":\"2020-01-01\",\"version\":4,\"terms\":{\"苹果\":1,\"樱桃\":1}}",
+            ""), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void replaySkipsBrokenRecordAndKeepsLaterOnes() {
+        Map<LocalDate, Long> versions = searchIndex.indexedVersions();
+
+        assertEquals(Map.of(LocalDate.of(2020, 1, 1), 4L, LocalDate.of(2020, 1, 3), 3L), versions);
+        assertEquals(List.of(LocalDate.of(2020, 1, 3)), dates(searchIndex.search("香蕉", 10)));
+        assertEquals(List.of(LocalDate.of(2020, 1, 1)), dates(searchIndex.search("樱桃", 10)));
+    }
+
+    private static List<LocalDate> dates(List<Map.Entry<LocalDate, Double>> results) {
+        return results.stream().map(Map.Entry::getKey).toList();
+    }
+}
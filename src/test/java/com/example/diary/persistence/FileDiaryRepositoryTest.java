@@ -0,0 +1,105 @@
+package com.example.diary.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.diary.model.DiarySession;
+
+/**
+ * FileDiaryRepository 的测试：格式迁移与用户保存并发
+ */
+@SpringBootTest(classes = {FileDiaryRepository.class, DiaryCodecs.class, SessionJournal.class, DiaryDateIndex.class,
+    DiarySessionCache.class, ArchiveSegmentStore.class, AtomicFileWriter.class, WriteBehindQueue.class,
+    DiarySearchIndex.class})
+class FileDiaryRepositoryTest {
+
+    private static final int ROUNDS = 200;
+
+    @TempDir
+    static Path dataDirectory;
+
+    @Autowired
+    private FileDiaryRepository diaryRepository;
+
+    @Autowired
+    private DiaryDateIndex dateIndex;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @DynamicPropertySource
+    static void dataProperties(DynamicPropertyRegistry registry) {
+        registry.add("diary.data.directory", dataDirectory::toString);
+        registry.add("diary.data.pretty-print", () -> "false");
+        registry.add("diary.archive.enabled", () -> "false");
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void migrationNeverOverwritesConcurrentSave() throws Exception {
+        JsonDiaryCodec prettyCodec = new JsonDiaryCodec(true);
+        for (int round = 0; round < ROUNDS; round++) {
+            LocalDate date = LocalDate.of(2020, 1, 1).plusDays(round);
+
+            // 缩进的JSON不是当前编码，迁移会重写它
+            Path path = dataDirectory.resolve("diary_" + date + ".json");
+            Files.write(path, prettyCodec.encode(session(date, "旧内容")));
+            dateIndex.put(date, path);
+
+            DiarySession updated = session(date, "新内容");
+            CyclicBarrier start = new CyclicBarrier(2);
+            CompletableFuture<Boolean> migration = CompletableFuture.supplyAsync(() -> {
+                await(start);
+                try {
+                    return diaryRepository.rewriteInWriteFormat(date);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+            CompletableFuture<Void> save = CompletableFuture.runAsync(() -> {
+                await(start);
+                diaryRepository.saveSession(updated);
+            }, executor);
+            CompletableFuture.allOf(migration, save).get();
+
+            assertEquals(List.of("新内容"), diaryRepository.loadSession(date).getEntryContents(),
+                "第" + round + "轮：迁移覆盖了并发保存的内容");
+        }
+    }
+
+    private static DiarySession session(LocalDate date, String content) {
+        DiarySession session = new DiarySession();
+        session.startSession();
+        session.setDate(date);
+        session.addEntry(content);
+        session.endSession();
+        return session;
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.diary.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import com.example.diary.fake.FakeOllamaServer;
+import com.example.diary.persistence.AtomicFileWriter;
+import com.example.diary.persistence.GenerationCache;
+
+/**
+ * OllamaService 对接模拟Ollama服务的测试：非流式、流式、对话模式、熔断和HTTP/2流式空闲超时
+ */
+@SpringBootTest(classes = {OllamaService.class, OllamaHttpClients.class, OllamaHealthMonitor.class,
+    GenerationScheduler.class, GenerationCache.class, AtomicFileWriter.class, PromptBuilder.class})
+class OllamaServiceTest {
+
+    private static final long OPEN_MS = 300;
+
+    private static final FakeOllamaServer server = new FakeOllamaServer(0);
+
+    @TempDir
+    static Path dataDirectory;
+
+    @Autowired
+    private OllamaService ollamaService;
+
+    @Autowired
+    private PromptBuilder promptBuilder;
+
+    @BeforeAll
+    static void startServer() {
+        server.setLatencyMs(0);
+        server.setTokensPerSecond(0);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @DynamicPropertySource
+    static void ollamaProperties(DynamicPropertyRegistry registry) {
+        registry.add("ollama.url", server::getUrl);
+        registry.add("diary.data.directory", dataDirectory::toString);
+        // 关闭缓存，每次调用都真正发到模拟服务
+        registry.add("ollama.cache.enabled", () -> "false");
+        registry.add("ollama.warmup.on-startup", () -> "false");
+        registry.add("ollama.health.interval-ms", () -> "600000");
+        registry.add("ollama.health.failure-threshold", () -> "1");
+        registry.add("ollama.health.open-ms", () -> String.valueOf(OPEN_MS));
+    }
+
+    @Test
+    void generateReturnsAllSections() {
+        String response = ollamaService.generateContent(promptBuilder.buildDiaryProcessingPrompt(List.of("今天去跑步了")));
+
+        for (DiarySection section : DiarySection.values()) {
+            assertTrue(response.contains("=== " + section.getTitle() + " ==="), response);
+        }
+    }
+
+    @Test
+    void streamDeliversFragmentsInOrder() {
+        List<String> fragments = new ArrayList<>();
+        String response = ollamaService.generateContentStream(
+            promptBuilder.buildDiaryProcessingPrompt(List.of("晚上读了一会儿书")),
+            fragment -> fragments.add(fragment.getResponse()));
+
+        assertTrue(fragments.size() > 1, "应逐个token交付片段");
+        assertEquals(response, String.join("", fragments));
+    }
+
+    @Test
+    void hostFailureOpensBreakerUntilCoolDown() throws InterruptedException {
+        String prompt = promptBuilder.buildDiaryProcessingPrompt(List.of("中午和朋友吃饭"));
+        server.failNext(1);
+        assertThrows(RuntimeException.class, () -> ollamaService.generateContent(prompt));
+
+        // 阈值为1，唯一的节点已熔断：排队前即失败，不再发出请求
+        long before = generateRequests();
+        assertThrows(OllamaUnavailableException.class, () -> ollamaService.generateContent(prompt));
+        assertEquals(before, generateRequests());
+
+        // 冷却后放行试探请求，成功后恢复
+        Thread.sleep(OPEN_MS + 50);
+        assertTrue(ollamaService.generateContent(prompt).contains(DiarySection.DIARY.getTitle()));
+        assertEquals(before + 1, generateRequests());
+    }
+
+    @Test
+    void clientErrorDoesNotOpenBreaker() {
+        String prompt = promptBuilder.buildDiaryProcessingPrompt(List.of("下午开了个会"));
+        server.setFailureStatus(400);
+        try {
+            server.failNext(1);
+            assertThrows(RuntimeException.class, () -> ollamaService.generateContent(prompt));
+        } finally {
+            server.setFailureStatus(500);
+        }
+
+        assertTrue(ollamaService.generateContent(prompt).contains(DiarySection.DIARY.getTitle()));
+    }
+
+    private static long generateRequests() {
+        return requests("/api/generate");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long requests(String path) {
+        Map<String, Long> byPath = (Map<String, Long>) server.getStats().get("requests");
+        return byPath.getOrDefault(path, 0L);
+    }
+
+    private static long cachedPromptTokens() {
+        return (Long) server.getStats().get("cachedPromptTokens");
+    }
+
+    /**
+     * 对话模式：规则作为system消息发送，重复的前缀在模拟服务中命中缓存
+     */
+    @Nested
+    @TestPropertySource(properties = "ollama.chat.enabled=true")
+    class Chat {
+
+        @Autowired
+        private OllamaService chatService;
+
+        @Test
+        void repeatedSystemPrefixIsNotEvaluatedAgain() {
+            long chatRequests = requests("/api/chat");
+            String first = chatService.generateContent(promptBuilder.buildDiaryProcessingPrompt(List.of("早上去了公园")));
+            long cachedAfterFirst = cachedPromptTokens();
+            String second = chatService.generateContent(promptBuilder.buildDiaryProcessingPrompt(List.of("晚上看了电影")));
+
+            assertEquals(chatRequests + 2, requests("/api/chat"));
+            assertTrue(first.contains("=== " + DiarySection.DIARY.getTitle() + " ==="), first);
+            assertTrue(second.contains("=== " + DiarySection.DIARY.getTitle() + " ==="), second);
+            assertTrue(cachedPromptTokens() > cachedAfterFirst, "第二次请求应复用已评估的system前缀");
+        }
+    }
+
+    /**
+     * HTTP/2（JDK HttpClient）：流式响应中途停顿超过生成超时时由看门狗中断，而不是一直挂起
+     */
+    @Nested
+    @TestPropertySource(properties = {"ollama.http.http2=true", "ollama.http.generation-timeout-ms=500"})
+    class Http2 {
+
+        @Autowired
+        private OllamaService http2Service;
+
+        @Test
+        void stalledStreamTimesOut() {
+            List<String> fragments = new ArrayList<>();
+            server.setTokensPerSecond(0.5);
+            long start = System.nanoTime();
+            try {
+                RuntimeException error = assertThrows(RuntimeException.class, () -> http2Service.generateContentStream(
+                    promptBuilder.buildDiaryProcessingPrompt(List.of("傍晚去超市买菜")),
+                    fragment -> fragments.add(fragment.getResponse())));
+                assertTrue(hasCause(error, SocketTimeoutException.class), error.toString());
+            } finally {
+                server.setTokensPerSecond(0);
+            }
+
+            assertEquals(1, fragments.size(), "停顿前的片段应已交付");
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "应在空闲超时后很快失败");
+        }
+
+        private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+            for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+                if (type.isInstance(cause)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}